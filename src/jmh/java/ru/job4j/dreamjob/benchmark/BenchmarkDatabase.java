@@ -0,0 +1,68 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
+import ru.job4j.dreamjob.configuration.InstrumentedDataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Встроенная H2 в памяти для бенчмарков. У каждого запуска своя пустая БД: схема создается
+ * скриптами Liquibase в порядке dbchangelog.xml, поэтому совпадает со схемой приложения,
+ * а результаты не зависят от данных, оставшихся в ./testdb после тестов.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final Pattern INCLUDE = Pattern.compile("<include file=\"([^\"]+)\"");
+
+    private final InstrumentedDataSource dataSource;
+
+    private final Sql2o sql2o;
+
+    BenchmarkDatabase() {
+        this(new DatasourcePoolProperties());
+    }
+
+    BenchmarkDatabase(DatasourcePoolProperties pool) {
+        var url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+        var configuration = new DatasourceConfiguration();
+        this.dataSource = configuration.connectionPool(url, "", "", pool);
+        this.sql2o = configuration.databaseClient(dataSource, configuration.sqlParameterParsingStrategy());
+        migrate();
+    }
+
+    Sql2o sql2o() {
+        return sql2o;
+    }
+
+    private void migrate() {
+        var matcher = INCLUDE.matcher(readChangelog());
+        try (var connection = sql2o.open()) {
+            while (matcher.find()) {
+                connection.createQuery("RUNSCRIPT FROM 'classpath:db/" + matcher.group(1) + "'").executeUpdate();
+            }
+        }
+    }
+
+    private String readChangelog() {
+        try (var input = BenchmarkDatabase.class.getClassLoader().getResourceAsStream("db/dbchangelog.xml")) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Закрывает пул. Сама БД в памяти освобождается вместе с JVM: JMH запускает каждый бенчмарк в отдельном процессе.
+     */
+    @Override
+    public void close() throws SQLException {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,117 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.Sql2oVacancyRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка запросов на потоках платформы (как пул Tomcat при spring.threads.virtual.enabled=false)
+ * и на виртуальных потоках (spring.threads.virtual.enabled=true) при одинаковом пуле соединений с БД.
+ * Каждый из 256 клиентов отправляет запрос и ждет ответа. Запрос читает вакансию из БД,
+ * читает файл с диска и ждет внешний ответ (WAIT_MILLIS, без соединения с БД): встроенная H2
+ * отвечает без сети, и это ожидание изображает сетевые задержки настоящего окружения.
+ * Throughput показывает пропускную способность, SampleTime - распределение задержек с перцентилями.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ExecutionModeBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private static final long WAIT_MILLIS = 5;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    /**
+     * Размер пула потоков платформы; в режиме виртуальных потоков не используется.
+     */
+    @Param({"64"})
+    private int requestThreads;
+
+    /**
+     * Размер пула соединений с БД, одинаковый в обоих режимах.
+     */
+    @Param({"16"})
+    private int connections;
+
+    private BenchmarkDatabase database;
+
+    private Sql2oVacancyRepository repository;
+
+    private ExecutorService executor;
+
+    private Path directory;
+
+    private Path file;
+
+    private int firstId;
+
+    @Setup
+    public void setUp() throws IOException {
+        var pool = new DatasourcePoolProperties();
+        pool.setMaxTotal(connections);
+        pool.setMaxIdle(connections);
+        database = new BenchmarkDatabase(pool);
+        repository = new Sql2oVacancyRepository(database.sql2o());
+        var vacancies = new ArrayList<Vacancy>();
+        for (var i = 0; i < ROWS; i++) {
+            vacancies.add(new Vacancy(0, "title " + i, "description " + i, LocalDateTime.now(), true, 1, 0));
+        }
+        repository.saveAll(vacancies);
+        firstId = vacancies.get(0).getId();
+        directory = Files.createTempDirectory("execution-mode-benchmark");
+        file = Files.write(directory.resolve("logo.bin"), new byte[16 * 1024]);
+        executor = "virtual".equals(mode)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(requestThreads);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        database.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int request() throws Exception {
+        return executor.submit(this::handle).get();
+    }
+
+    private int handle() throws Exception {
+        var vacancy = repository.findById(firstId + ThreadLocalRandom.current().nextInt(ROWS)).orElseThrow();
+        var content = Files.readAllBytes(file);
+        Thread.sleep(WAIT_MILLIS);
+        return vacancy.getId() + content.length;
+    }
+}
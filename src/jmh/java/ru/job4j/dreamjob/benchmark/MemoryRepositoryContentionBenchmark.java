@@ -0,0 +1,103 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.MemoryCandidateRepository;
+import ru.job4j.dreamjob.repository.MemoryVacancyRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory*Repository под конкурентной нагрузкой: в каждой группе три потока читают
+ * (по id и полный список), а один параллельно изменяет те же записи.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MemoryRepositoryContentionBenchmark {
+
+    private static final int SIZE = 1000;
+
+    private MemoryVacancyRepository vacancyRepository;
+
+    private MemoryCandidateRepository candidateRepository;
+
+    @Setup
+    public void setUp() {
+        vacancyRepository = new MemoryVacancyRepository();
+        candidateRepository = MemoryCandidateRepository.getInstance();
+        while (vacancyRepository.findAll().size() < SIZE) {
+            vacancyRepository.save(new Vacancy(0, "title", "description", LocalDateTime.now(), true, 1, 0));
+        }
+        while (candidateRepository.findAllCandidate().size() < SIZE) {
+            candidateRepository.saveCandidate(new Candidate(0, "name", "description", LocalDateTime.now(), 1, 0));
+        }
+    }
+
+    @Benchmark
+    @Group("vacancies")
+    @GroupThreads(2)
+    public Optional<Vacancy> vacancyFindById() {
+        return vacancyRepository.findById(randomId());
+    }
+
+    @Benchmark
+    @Group("vacancies")
+    @GroupThreads(1)
+    public void vacancyFindAll(Blackhole blackhole) {
+        vacancyRepository.findAll().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    @Group("vacancies")
+    @GroupThreads(1)
+    public boolean vacancyUpdate() {
+        return vacancyRepository.update(new Vacancy(randomId(), "new title", "new description",
+                LocalDateTime.now(), true, 2, 0));
+    }
+
+    @Benchmark
+    @Group("candidates")
+    @GroupThreads(2)
+    public Optional<Candidate> candidateFindById() {
+        return candidateRepository.findByIdCandidate(randomId());
+    }
+
+    @Benchmark
+    @Group("candidates")
+    @GroupThreads(1)
+    public void candidateFindAll(Blackhole blackhole) {
+        candidateRepository.findAllCandidate().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    @Group("candidates")
+    @GroupThreads(1)
+    public boolean candidateUpdate() {
+        return candidateRepository.updateCandidate(new Candidate(randomId(), "new name", "new description",
+                LocalDateTime.now(), 2, 0));
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(SIZE);
+    }
+}
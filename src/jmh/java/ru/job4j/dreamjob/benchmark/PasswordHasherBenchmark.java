@@ -0,0 +1,57 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.dreamjob.service.Pbkdf2PasswordHasher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Входов в секунду на одно ядро при разной стоимости хэша (security.password.iterations).
+ * Бенчмарк однопоточный, поэтому результат в ops/s и есть пропускная способность ядра:
+ * умножив его на security.password.threads, получаем потолок входов в секунду для приложения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class PasswordHasherBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"100000", "310000", "600000"})
+    private int iterations;
+
+    private Pbkdf2PasswordHasher hasher;
+
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        hasher = new Pbkdf2PasswordHasher(iterations);
+        hash = hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean login() {
+        return hasher.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public String register() {
+        return hasher.hash(PASSWORD);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Цена сжатия страницы списка вакансий (20 строк, как в VacancyController) на процессоре против экономии трафика.
+ * Страница отрисовывается один раз из настоящих шаблонов, затем отправляется кусками по размеру буфера ответа,
+ * как это делает Tomcat при server.compression.enabled: сжатие идет по мере записи, ответ целиком не копится.
+ * Уровень 0 означает отправку без сжатия, Tomcat использует уровень по умолчанию (6).
+ * Объем переданных данных попадает в результаты (target/jmh-result.json) рядом со временем:
+ * sendPage:transferredBytes и sendPage:pages - суммы за измерение, их отношение - байт на одну страницу.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseCompressionBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"0", "1", "6", "9"})
+    private int level;
+
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        page = renderVacancyListPage().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long sendPage(Transfer transfer) throws IOException {
+        var sink = new CountingOutputStream();
+        send(sink);
+        transfer.transferredBytes += sink.count;
+        transfer.pages++;
+        return sink.count;
+    }
+
+    /**
+     * Счетчики переданных данных, JMH выводит их как дополнительные результаты бенчмарка.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+
+        public long transferredBytes;
+
+        public long pages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            transferredBytes = 0;
+            pages = 0;
+        }
+    }
+
+    private void send(CountingOutputStream sink) throws IOException {
+        if (level == 0) {
+            writeInChunks(sink);
+            return;
+        }
+        try (var gzip = new LevelGzipOutputStream(sink, level)) {
+            writeInChunks(gzip);
+        }
+    }
+
+    private void writeInChunks(OutputStream out) throws IOException {
+        for (var offset = 0; offset < page.length; offset += BUFFER_SIZE) {
+            out.write(page, offset, Math.min(BUFFER_SIZE, page.length - offset));
+        }
+        out.flush();
+    }
+
+    private static String renderVacancyListPage() {
+        var resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setCharacterEncoding("UTF-8");
+        var engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        var request = new MockHttpServletRequest("GET", "/vacancies");
+        var exchange = JakartaServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, new MockHttpServletResponse());
+        var vacancies = new ArrayList<Vacancy>();
+        var creationDate = LocalDateTime.now();
+        for (var id = PAGE_SIZE; id > 0; id--) {
+            vacancies.add(new Vacancy(id, "Java-разработчик (Spring, PostgreSQL) " + id, null,
+                    creationDate.minusHours(id), id % 3 != 0, 1, 0));
+        }
+        var table = engine.process("vacancies/table", new WebContext(exchange, Locale.ROOT,
+                Map.of("vacancies", vacancies, "page", new Page<>(vacancies, "next", null))));
+        var user = new User();
+        user.setName("Гость");
+        return engine.process("vacancies/list", new WebContext(exchange, Locale.ROOT, Map.of("table", table, "user", user)));
+    }
+
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+
+        private LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
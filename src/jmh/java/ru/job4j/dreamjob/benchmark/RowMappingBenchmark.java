@@ -0,0 +1,82 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+import ru.job4j.dreamjob.repository.Sql2oVacancyRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findAll по 100 000 вакансий: преобразование строк через рефлексию sql2o (колонки по именам,
+ * соответствие колонок свойствам, сеттеры) против маппера {@link Sql2oVacancyRepository}, читающего колонки по номеру.
+ * Запрос и чтение из H2 у обоих вариантов одинаковые, разница - только стоимость преобразования строк.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private BenchmarkDatabase database;
+
+    private Sql2oVacancyRepository repository;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        repository = new Sql2oVacancyRepository(database.sql2o());
+        var fileId = new Sql2oFileRepository(database.sql2o()).save(new File("logo.png", "files/logo.png")).getId();
+        var creationDate = LocalDateTime.now();
+        for (var from = 0; from < ROWS; from += BATCH_SIZE) {
+            var vacancies = new ArrayList<Vacancy>();
+            for (var i = from; i < from + BATCH_SIZE; i++) {
+                vacancies.add(new Vacancy(0, "Java разработчик " + i, "Описание вакансии " + i,
+                        creationDate.minusMinutes(i), i % 2 == 0, 1 + i % 3, fileId));
+            }
+            repository.saveAll(vacancies);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Vacancy> reflective() {
+        try (var connection = database.sql2o().open()) {
+            return connection.createQuery("SELECT * FROM vacancies")
+                    .addColumnMapping("creation_date", "creationDate")
+                    .addColumnMapping("city_id", "cityId")
+                    .addColumnMapping("file_id", "fileId")
+                    .executeAndFetch(Vacancy.class);
+        }
+    }
+
+    @Benchmark
+    public Collection<Vacancy> rowMapper() {
+        return repository.findAll();
+    }
+}
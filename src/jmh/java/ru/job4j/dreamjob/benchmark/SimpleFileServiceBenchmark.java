@@ -0,0 +1,108 @@
+package ru.job4j.dreamjob.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+import ru.job4j.dreamjob.service.SimpleFileService;
+import ru.job4j.dreamjob.service.SimpleImageVariantService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение и чтение файлов через {@link SimpleFileService} (диск во временной директории и H2 в памяти)
+ * при разных размерах файла, в обоих режимах хранения. В режиме хранения по содержимому
+ * каждое сохранение получает новое содержимое, иначе измерялось бы только увеличение счетчика ссылок.
+ * Сохраненные за итерацию файлы удаляются после нее, чтобы диск не переполнялся.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SimpleFileServiceBenchmark {
+
+    @Param({"1024", "102400", "1048576"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean contentAddressed;
+
+    private BenchmarkDatabase database;
+
+    private Path directory;
+
+    private SimpleFileService fileService;
+
+    private byte[] content;
+
+    private File stored;
+
+    private final List<Integer> saved = new ArrayList<>();
+
+    private long saves;
+
+    @Setup
+    public void setUp() throws IOException {
+        database = new BenchmarkDatabase();
+        directory = Files.createTempDirectory("file-benchmark");
+        var fileRepository = new Sql2oFileRepository(database.sql2o());
+        var imageVariantService = new SimpleImageVariantService(fileRepository, directory + "-variants", List.of(100));
+        fileService = new SimpleFileService(fileRepository, imageVariantService, directory.toString(), contentAddressed,
+                new SimpleMeterRegistry());
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        stored = fileService.save(new FileDto("stored.bin", content));
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteSaved() {
+        saved.forEach(fileService::deleteById);
+        saved.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        database.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public File save() {
+        // Меняем первые байты, чтобы содержимое (и его хэш) каждый раз было новым
+        saves++;
+        for (var i = 0; i < Long.BYTES; i++) {
+            content[i] = (byte) (saves >>> (i * Byte.SIZE));
+        }
+        var file = fileService.save(new FileDto("file.bin", content));
+        saved.add(file.getId());
+        return file;
+    }
+
+    @Benchmark
+    public Optional<FileDto> getFileById() {
+        return fileService.getFileById(stored.getId());
+    }
+}
@@ -0,0 +1,87 @@
+package ru.job4j.dreamjob.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+import ru.job4j.dreamjob.repository.Sql2oVacancyRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Основные операции {@link Sql2oVacancyRepository} на встроенной H2 при разном числе вакансий в таблице.
+ * Время findAll растет с размером таблицы, findById и save от него почти не зависят.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Sql2oVacancyRepositoryBenchmark {
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+
+    private Sql2oVacancyRepository repository;
+
+    private int firstId;
+
+    private int fileId;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        repository = new Sql2oVacancyRepository(database.sql2o());
+        fileId = new Sql2oFileRepository(database.sql2o()).save(new File("logo.png", "files/logo.png")).getId();
+        var vacancies = new ArrayList<Vacancy>();
+        for (var i = 0; i < rows; i++) {
+            vacancies.add(vacancy(i));
+        }
+        repository.saveAll(vacancies);
+        firstId = vacancies.get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public Collection<Vacancy> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Vacancy> findById() {
+        return repository.findById(firstId + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public Vacancy save() {
+        return repository.save(vacancy(rows));
+    }
+
+    private Vacancy vacancy(int number) {
+        return new Vacancy(0, "Java разработчик " + number, "Описание вакансии " + number,
+                LocalDateTime.now(), true, 1 + number % 3, fileId);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.sql2o.quirks.parameterparsing.SqlParameterParsingStrategy;
+import org.sql2o.quirks.parameterparsing.impl.DefaultSqlParameterParsingStrategy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Разбор именованных параметров (:name) запросов Sql2o с кэшем по тексту запроса.
+ * Sql2o разбирает текст при каждом createQuery, хотя запросы репозиториев - константы:
+ * каждый запрос разбирается один раз, при первом выполнении, дальше результат берется из кэша.
+ * Разобранный текст с параметрами "?" для одного запроса всегда один и тот же, поэтому по нему же
+ * находит готовый PreparedStatement кэш пула соединений (datasource.pool.pool-prepared-statements).
+ * Число запросов в кэше ограничено: запросы сверх лимита разбираются каждый раз и считаются промахами.
+ */
+public class CachingSqlParameterParsingStrategy implements SqlParameterParsingStrategy {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+    private final SqlParameterParsingStrategy parser = new DefaultSqlParameterParsingStrategy();
+
+    private final Map<String, ParsedSql> cache = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public CachingSqlParameterParsingStrategy() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachingSqlParameterParsingStrategy(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public String parseSql(String statement, Map<String, List<Integer>> mapToFill) {
+        var parsed = cache.get(statement);
+        if (parsed != null) {
+            hits.increment();
+            mapToFill.putAll(parsed.parameters);
+            return parsed.sql;
+        }
+        misses.increment();
+        var parameters = new HashMap<String, List<Integer>>();
+        var sql = parser.parseSql(statement, parameters);
+        if (cache.size() < maximumSize) {
+            var indexes = new HashMap<String, List<Integer>>();
+            parameters.forEach((name, positions) -> indexes.put(name, List.copyOf(positions)));
+            cache.putIfAbsent(statement, new ParsedSql(sql, Map.copyOf(indexes)));
+        }
+        mapToFill.putAll(parameters);
+        return sql;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    private static final class ParsedSql {
+
+        private final String sql;
+
+        private final Map<String, List<Integer>> parameters;
+
+        private ParsedSql(String sql, Map<String, List<Integer>> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+}
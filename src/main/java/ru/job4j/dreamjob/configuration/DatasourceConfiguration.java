@@ -1,41 +1,192 @@
 package ru.job4j.dreamjob.configuration;
 
-import org.apache.commons.dbcp2.BasicDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.sql2o.Sql2o;
 import org.sql2o.converters.Converter;
 import org.sql2o.converters.ConverterException;
 import org.sql2o.quirks.NoQuirks;
 import org.sql2o.quirks.Quirks;
+import org.sql2o.quirks.parameterparsing.SqlParameterParsingStrategy;
 
 import javax.sql.DataSource;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@EnableConfigurationProperties({DatasourcePoolProperties.class, ReplicaProperties.class})
 public class DatasourceConfiguration {
 
     @Bean
-    public DataSource connectionPool(@Value("${datasource.url}") String url,
-                                     @Value("${datasource.username}") String username,
-                                     @Value("${datasource.password}") String password) {
-        return new BasicDataSource() {
+    public InstrumentedDataSource connectionPool(@Value("${datasource.url}") String url,
+                                                 @Value("${datasource.username}") String username,
+                                                 @Value("${datasource.password}") String password,
+                                                 DatasourcePoolProperties pool) {
+        return createPool(url, username, password, pool);
+    }
+
+    /**
+     * Источник соединений, выбирающий между основной БД и репликой (ReadWriteRoutingDataSource).
+     * Пул реплики создается, только если задан datasource.replica.url.
+     */
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(InstrumentedDataSource connectionPool,
+                                                        ReplicaProperties replica,
+                                                        DatasourcePoolProperties pool) {
+        InstrumentedDataSource replicaPool = null;
+        if (replica.isConfigured()) {
+            replicaPool = createPool(replica.getUrl(), replica.getUsername(), replica.getPassword(), pool);
+            replicaPool.setDefaultReadOnly(true);
+        }
+        return new ReadWriteRoutingDataSource(connectionPool, replicaPool, replica);
+    }
+
+    /**
+     * Откладывает получение соединения до первого запроса, когда уже известно, только ли
+     * для чтения транзакция. Этот же источник - общий для менеджера транзакций и Sql2o.
+     */
+    @Bean
+    public DataSource readWriteDataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Публикует, доступна ли реплика, ее отставание и сколько соединений выдано с каждой БД.
+     * Рост datasource.replica.failures означает, что реплика отказывала при получении соединения.
+     */
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReadWriteRoutingDataSource routingDataSource) {
+        return registry -> {
+            Gauge.builder("datasource.replica.available", routingDataSource, source -> source.isReplicaAvailable() ? 1 : 0)
+                    .description("Чтение идет с реплики (1) или с основной БД (0)").register(registry);
+            TimeGauge.builder("datasource.replica.lag", routingDataSource, TimeUnit.MILLISECONDS,
+                    ReadWriteRoutingDataSource::getReplicaLagMillis)
+                    .description("Отставание реплики по последней проверке").register(registry);
+            FunctionCounter.builder("datasource.routing.connections", routingDataSource,
+                    ReadWriteRoutingDataSource::getPrimaryConnectionCount)
+                    .tag("target", "primary").description("Соединения, выданные с основной БД").register(registry);
+            FunctionCounter.builder("datasource.routing.connections", routingDataSource,
+                    ReadWriteRoutingDataSource::getReplicaConnectionCount)
+                    .tag("target", "replica").description("Соединения, выданные с реплики").register(registry);
+            FunctionCounter.builder("datasource.replica.failures", routingDataSource,
+                    ReadWriteRoutingDataSource::getReplicaFailureCount)
+                    .description("Отказы реплики при получении соединения").register(registry);
+        };
+    }
+
+    /**
+     * Публикует метрики пула соединений: сколько соединений выдано, свободно, сколько потоков
+     * ждут соединения и сколько в среднем длится ожидание, а также счетчики созданных и закрытых
+     * соединений (по ним вычисляется частота пересоздания).
+     */
+    @Bean
+    public MeterBinder connectionPoolMetrics(InstrumentedDataSource connectionPool) {
+        return registry -> {
+            Gauge.builder("dbcp2.connections.active", connectionPool, InstrumentedDataSource::getNumActive)
+                    .description("Соединения, выданные из пула").register(registry);
+            Gauge.builder("dbcp2.connections.idle", connectionPool, InstrumentedDataSource::getNumIdle)
+                    .description("Свободные соединения в пуле").register(registry);
+            Gauge.builder("dbcp2.connections.pending", connectionPool, InstrumentedDataSource::getNumWaiters)
+                    .description("Потоки, ожидающие соединения").register(registry);
+            Gauge.builder("dbcp2.connections.max", connectionPool, InstrumentedDataSource::getMaxTotal)
+                    .description("Максимальный размер пула").register(registry);
+            TimeGauge.builder("dbcp2.connections.wait.mean", connectionPool, TimeUnit.MILLISECONDS,
+                    InstrumentedDataSource::getMeanBorrowWaitTimeMillis)
+                    .description("Среднее время ожидания соединения").register(registry);
+            TimeGauge.builder("dbcp2.connections.wait.max", connectionPool, TimeUnit.MILLISECONDS,
+                    InstrumentedDataSource::getMaxBorrowWaitTimeMillis)
+                    .description("Максимальное время ожидания соединения").register(registry);
+            FunctionCounter.builder("dbcp2.connections.borrowed", connectionPool, InstrumentedDataSource::getBorrowedCount)
+                    .description("Выдано соединений из пула").register(registry);
+            FunctionCounter.builder("dbcp2.connections.created", connectionPool, InstrumentedDataSource::getCreatedCount)
+                    .description("Создано физических соединений").register(registry);
+            FunctionCounter.builder("dbcp2.connections.destroyed", connectionPool, InstrumentedDataSource::getDestroyedCount)
+                    .description("Закрыто физических соединений").register(registry);
+            FunctionCounter.builder("dbcp2.statements.prepared", connectionPool, InstrumentedDataSource::getPreparedStatementCount)
+                    .description("Запросы, подготовленные драйвером (промахи кэша PreparedStatement)").register(registry);
+        };
+    }
+
+    /**
+     * Соединения для репозиториев: внутри @Transactional операция сервиса занимает одно соединение пула
+     * и фиксируется один раз, вне транзакции каждый вызов репозитория берет соединение на время запроса.
+     */
+    @Bean
+    public DataSource transactionalDataSource(DataSource readWriteDataSource) {
+        return new TransactionalDataSource(readWriteDataSource);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource readWriteDataSource) {
+        return new DataSourceTransactionManager(readWriteDataSource);
+    }
+
+    @Bean
+    public CachingSqlParameterParsingStrategy sqlParameterParsingStrategy() {
+        return new CachingSqlParameterParsingStrategy();
+    }
+
+    /**
+     * Публикует статистику кэша разбора запросов. Каждый запрос Sql2o - одно обращение к этому кэшу,
+     * поэтому сумма hits и misses - это и число запросов PreparedStatement к пулу, а доля попаданий
+     * в кэш PreparedStatement равна 1 - dbcp2.statements.prepared / (hits + misses).
+     */
+    @Bean
+    public MeterBinder sqlParameterParsingMetrics(CachingSqlParameterParsingStrategy sqlParameterParsingStrategy) {
+        return registry -> {
+            FunctionCounter.builder("sql2o.statements.parse.hits", sqlParameterParsingStrategy,
+                    CachingSqlParameterParsingStrategy::getHitCount)
+                    .description("Запросы, разбор которых взят из кэша").register(registry);
+            FunctionCounter.builder("sql2o.statements.parse.misses", sqlParameterParsingStrategy,
+                    CachingSqlParameterParsingStrategy::getMissCount)
+                    .description("Запросы, разобранные заново").register(registry);
+            Gauge.builder("sql2o.statements.parse.size", sqlParameterParsingStrategy,
+                    CachingSqlParameterParsingStrategy::getSize)
+                    .description("Разобранные запросы в кэше").register(registry);
+        };
+    }
+
+    @Bean
+    public Sql2o databaseClient(DataSource transactionalDataSource,
+                                SqlParameterParsingStrategy sqlParameterParsingStrategy) {
+        return new Sql2o(transactionalDataSource, createQuirks(sqlParameterParsingStrategy));
+    }
+
+    private static InstrumentedDataSource createPool(String url, String username, String password,
+                                                     DatasourcePoolProperties pool) {
+        return new InstrumentedDataSource() {
             {
                 setUrl(url);
                 setUsername(username);
                 setPassword(password);
+                setInitialSize(pool.getInitialSize());
+                setMaxTotal(pool.getMaxTotal());
+                setMaxIdle(pool.getMaxIdle());
+                setMinIdle(pool.getMinIdle());
+                setMaxWait(pool.getMaxWait());
+                setMaxConn(pool.getMaxConnectionLifetime());
+                setValidationQuery(pool.getValidationQuery());
+                setTestOnBorrow(pool.isTestOnBorrow());
+                setTestWhileIdle(pool.isTestWhileIdle());
+                setDurationBetweenEvictionRuns(pool.getTimeBetweenEvictionRuns());
+                setMinEvictableIdle(pool.getMinEvictableIdleTime());
+                setPoolPreparedStatements(pool.isPoolPreparedStatements());
+                setMaxOpenPreparedStatements(pool.getMaxOpenPreparedStatements());
             }
         };
     }
 
-    @Bean
-    public Sql2o databaseClient(DataSource dataSource) {
-        return new Sql2o(dataSource, createConverters());
-    }
-
-    private Quirks createConverters() {
+    private Quirks createQuirks(SqlParameterParsingStrategy sqlParameterParsingStrategy) {
         return new NoQuirks() {
             {
                 converters.put(LocalDateTime.class, new Converter<LocalDateTime>() {
@@ -58,6 +209,11 @@ public class DatasourceConfiguration {
 
                 });
             }
+
+            @Override
+            public SqlParameterParsingStrategy getSqlParameterParsingStrategy() {
+                return sqlParameterParsingStrategy;
+            }
         };
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки пула соединений (префикс datasource.pool в application.properties).
+ * Значения по умолчанию совпадают с умолчаниями DBCP2, кроме времени ожидания соединения:
+ * бесконечное ожидание прячет нехватку соединений, поэтому оно ограничено.
+ */
+@ConfigurationProperties(prefix = "datasource.pool")
+public class DatasourcePoolProperties {
+
+    /**
+     * Сколько соединений открыть при создании пула.
+     */
+    private int initialSize;
+
+    /**
+     * Максимальное число соединений (выданных и свободных вместе).
+     */
+    private int maxTotal = 8;
+
+    /**
+     * Максимальное число свободных соединений, лишние закрываются при возврате в пул.
+     */
+    private int maxIdle = 8;
+
+    /**
+     * Минимальное число свободных соединений, которое поддерживает фоновый поток очистки.
+     */
+    private int minIdle;
+
+    /**
+     * Сколько ждать свободного соединения, прежде чем бросить исключение.
+     */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    /**
+     * Максимальное время жизни соединения; отрицательное значение - без ограничения.
+     */
+    private Duration maxConnectionLifetime = Duration.ofMillis(-1);
+
+    /**
+     * Запрос для проверки соединения; если не задан, используется Connection.isValid().
+     */
+    private String validationQuery;
+
+    private boolean testOnBorrow = true;
+
+    private boolean testWhileIdle;
+
+    /**
+     * Период запуска потока очистки свободных соединений; отрицательное значение - поток не запускается.
+     */
+    private Duration timeBetweenEvictionRuns = Duration.ofMillis(-1);
+
+    /**
+     * Сколько соединение может простаивать, прежде чем поток очистки его закроет.
+     */
+    private Duration minEvictableIdleTime = Duration.ofMinutes(30);
+
+    /**
+     * Кэшировать ли PreparedStatement для каждого соединения.
+     */
+    private boolean poolPreparedStatements;
+
+    /**
+     * Максимальное число кэшированных PreparedStatement на соединение; отрицательное значение - без ограничения.
+     */
+    private int maxOpenPreparedStatements = -1;
+
+    public int getInitialSize() {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public Duration getMaxConnectionLifetime() {
+        return maxConnectionLifetime;
+    }
+
+    public void setMaxConnectionLifetime(Duration maxConnectionLifetime) {
+        this.maxConnectionLifetime = maxConnectionLifetime;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    public boolean isTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean isTestWhileIdle() {
+        return testWhileIdle;
+    }
+
+    public void setTestWhileIdle(boolean testWhileIdle) {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public Duration getTimeBetweenEvictionRuns() {
+        return timeBetweenEvictionRuns;
+    }
+
+    public void setTimeBetweenEvictionRuns(Duration timeBetweenEvictionRuns) {
+        this.timeBetweenEvictionRuns = timeBetweenEvictionRuns;
+    }
+
+    public Duration getMinEvictableIdleTime() {
+        return minEvictableIdleTime;
+    }
+
+    public void setMinEvictableIdleTime(Duration minEvictableIdleTime) {
+        this.minEvictableIdleTime = minEvictableIdleTime;
+    }
+
+    public boolean isPoolPreparedStatements() {
+        return poolPreparedStatements;
+    }
+
+    public void setPoolPreparedStatements(boolean poolPreparedStatements) {
+        this.poolPreparedStatements = poolPreparedStatements;
+    }
+
+    public int getMaxOpenPreparedStatements() {
+        return maxOpenPreparedStatements;
+    }
+
+    public void setMaxOpenPreparedStatements(int maxOpenPreparedStatements) {
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+    }
+}
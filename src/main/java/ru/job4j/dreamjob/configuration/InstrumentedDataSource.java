@@ -0,0 +1,85 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.ConnectionFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул DBCP2, открывающий статистику внутреннего пула объектов, которую BasicDataSource
+ * не публикует: число потоков в очереди за соединением, время ожидания, счетчики созданных соединений.
+ * До первого запроса соединения пул не создан, и все значения равны нулю.
+ * Кроме того, считается, сколько запросов подготовил сам драйвер: при включенном кэше PreparedStatement
+ * (poolPreparedStatements) это промахи кэша, без него - все подготовленные запросы.
+ */
+public class InstrumentedDataSource extends BasicDataSource {
+
+    private final LongAdder preparedStatements = new LongAdder();
+
+    public int getNumWaiters() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getNumWaiters();
+    }
+
+    public long getMeanBorrowWaitTimeMillis() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getMeanBorrowWaitDuration().toMillis();
+    }
+
+    public long getMaxBorrowWaitTimeMillis() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getMaxBorrowWaitDuration().toMillis();
+    }
+
+    public long getBorrowedCount() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getBorrowedCount();
+    }
+
+    public long getCreatedCount() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getCreatedCount();
+    }
+
+    public long getDestroyedCount() {
+        var pool = getConnectionPool();
+        return pool == null ? 0 : pool.getDestroyedCount();
+    }
+
+    public long getPreparedStatementCount() {
+        return preparedStatements.sum();
+    }
+
+    /**
+     * Оборачивает соединения драйвера до того, как их примет пул: вызовы prepareStatement и prepareCall
+     * доходят сюда, только если подходящего запроса нет в кэше PreparedStatement соединения.
+     */
+    @Override
+    protected ConnectionFactory createConnectionFactory() throws SQLException {
+        var driverConnectionFactory = super.createConnectionFactory();
+        return () -> {
+            var connection = driverConnectionFactory.createConnection();
+            if (connection == null) {
+                return null;
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> invokeCounting(connection, method, args));
+        };
+    }
+
+    private Object invokeCounting(Connection connection, Method method, Object[] args) throws Throwable {
+        if (method.getName().startsWith("prepare")) {
+            preparedStatements.increment();
+        }
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.job4j.dreamjob.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.job4j.dreamjob.service.PasswordHasher;
+import ru.job4j.dreamjob.service.Pbkdf2PasswordHasher;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableConfigurationProperties(PasswordHashingProperties.class)
+public class PasswordHashingConfiguration {
+
+    @Bean
+    public PasswordHasher passwordHasher(PasswordHashingProperties properties) {
+        return new Pbkdf2PasswordHasher(properties.getIterations());
+    }
+
+    /**
+     * Отдельный ограниченный пул для проверки паролей. Медленный хэш не занимает потоки сервера,
+     * а при наплыве входов очередь не растет без предела: лишние задачи отклоняются
+     * с RejectedExecutionException, и остальные запросы приложения продолжают обслуживаться.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService passwordHashingExecutor(PasswordHashingProperties properties, MeterRegistry registry) {
+        var threads = properties.getThreads() > 0
+                ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        var executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        return ExecutorServiceMetrics.monitor(registry, executor, "password.hashing");
+    }
+
+    private ThreadFactory threadFactory() {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки хэширования паролей (префикс security.password в application.properties).
+ * Число итераций определяет, сколько процессорного времени стоит один вход:
+ * его подбирают по бенчмарку PasswordHasherBenchmark под нужное число входов в секунду.
+ */
+@ConfigurationProperties(prefix = "security.password")
+public class PasswordHashingProperties {
+
+    /**
+     * Число итераций PBKDF2 для новых хэшей. После изменения старые хэши пересчитываются при входе.
+     */
+    private int iterations = 310_000;
+
+    /**
+     * Потоки проверки паролей; 0 - по числу ядер. Больше ядер брать бессмысленно: задача чисто вычислительная.
+     */
+    private int threads;
+
+    /**
+     * Сколько проверок может ждать свободного потока, остальные входы сразу отклоняются.
+     */
+    private int queueCapacity = 100;
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,170 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.job4j.dreamjob.repository.PrimaryPinning;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выбор БД для соединения: транзакции только для чтения (@Transactional(readOnly = true)) получают
+ * соединение с реплики, все остальное - с основной БД. Реплика не используется, пока она недоступна
+ * или отстает больше datasource.replica.max-lag (проверяется по расписанию), и когда запрос закреплен
+ * за основной БД (PrimaryPinning). Если соединение с реплики получить не удалось, оно берется
+ * из основной БД, а реплика считается недоступной до следующей успешной проверки.
+ * Режим транзакции известен только после ее начала, поэтому перед этим источником нужен
+ * LazyConnectionDataSourceProxy: он берет соединение при первом запросе, а не в начале транзакции.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final ReplicaProperties properties;
+
+    private volatile boolean replicaAvailable;
+
+    private volatile double replicaLagMillis = Double.NaN;
+
+    private final LongAdder primaryConnections = new LongAdder();
+
+    private final LongAdder replicaConnections = new LongAdder();
+
+    private final LongAdder replicaFailures = new LongAdder();
+
+    /**
+     * @param replica пул реплики или null, если реплики нет
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaProperties properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.properties = properties;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routeToReplica()) {
+            return primaryConnection();
+        }
+        try {
+            var connection = replica.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            replicaFailures.increment();
+            markReplicaUnavailable("не удалось получить соединение: " + e.getMessage());
+            return primaryConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection(username, password);
+    }
+
+    private boolean routeToReplica() {
+        return replicaAvailable && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !PrimaryPinning.isPinned();
+    }
+
+    private Connection primaryConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            PrimaryPinning.markWritten();
+        }
+        primaryConnections.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Проверяет, отвечает ли реплика и насколько она отстает, с интервалом datasource.replica.check-interval.
+     * Первая проверка выполняется при запуске, до нее чтение идет из основной БД.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.check-interval:PT5S}")
+    public void checkReplica() {
+        if (replica == null) {
+            return;
+        }
+        try (var connection = replica.getConnection()) {
+            var lag = measureLag(connection);
+            replicaLagMillis = lag.toMillis();
+            if (lag.compareTo(properties.getMaxLag()) > 0) {
+                markReplicaUnavailable("отставание " + lag);
+            } else if (!replicaAvailable) {
+                replicaAvailable = true;
+                LOGGER.info("Реплика доступна, отставание {}: чтение идет с реплики", lag);
+            }
+        } catch (SQLException e) {
+            replicaLagMillis = Double.NaN;
+            markReplicaUnavailable(e.getMessage());
+        }
+    }
+
+    private Duration measureLag(Connection connection) throws SQLException {
+        var timeout = (int) properties.getCheckTimeout().toSeconds();
+        var lagQuery = properties.getLagQuery();
+        if (lagQuery == null || lagQuery.isBlank()) {
+            if (!connection.isValid(timeout)) {
+                throw new SQLException("соединение не прошло проверку");
+            }
+            return Duration.ZERO;
+        }
+        try (var statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeout);
+            try (var resultSet = statement.executeQuery(lagQuery)) {
+                return resultSet.next() ? Duration.ofMillis(Math.round(resultSet.getDouble(1) * 1000)) : Duration.ZERO;
+            }
+        }
+    }
+
+    private void markReplicaUnavailable(String reason) {
+        if (replicaAvailable) {
+            replicaAvailable = false;
+            LOGGER.warn("Реплика недоступна ({}): чтение переключено на основную БД", reason);
+        }
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    /**
+     * Отставание по последней проверке в миллисекундах, NaN - если проверить не удалось.
+     */
+    public double getReplicaLagMillis() {
+        return replicaLagMillis;
+    }
+
+    public long getPrimaryConnectionCount() {
+        return primaryConnections.sum();
+    }
+
+    public long getReplicaConnectionCount() {
+        return replicaConnections.sum();
+    }
+
+    public long getReplicaFailureCount() {
+        return replicaFailures.sum();
+    }
+
+    /**
+     * Закрывает пул реплики. Основной пул - отдельный бин, его закрывает контекст.
+     */
+    @Override
+    public void close() throws Exception {
+        if (replica instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки реплики только для чтения (префикс datasource.replica в application.properties).
+ * Без url реплики нет, и все запросы идут в основную БД. Пул реплики настраивается
+ * теми же параметрами datasource.pool, что и основной. Интервал проверки реплики (datasource.replica.check-interval)
+ * читается прямо аннотацией @Scheduled в {@link ReadWriteRoutingDataSource#checkReplica()}.
+ */
+@ConfigurationProperties(prefix = "datasource.replica")
+public class ReplicaProperties {
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * Запрос, возвращающий отставание реплики в секундах. Если не задан, проверяется только соединение.
+     */
+    private String lagQuery;
+
+    /**
+     * При большем отставании чтение переключается на основную БД до следующей проверки.
+     */
+    private Duration maxLag = Duration.ofSeconds(10);
+
+    /**
+     * Сколько ждать ответа реплики при проверке.
+     */
+    private Duration checkTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Сколько после записи сессия читает только из основной БД, чтобы видеть свои изменения.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    public boolean isConfigured() {
+        return url != null && !url.isBlank();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getLagQuery() {
+        return lagQuery;
+    }
+
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getCheckTimeout() {
+        return checkTimeout;
+    }
+
+    public void setCheckTimeout(Duration checkTimeout) {
+        this.checkTimeout = checkTimeout;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.job4j.dreamjob.configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.ContentVersionStrategy;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+import org.springframework.web.servlet.resource.ResourceUrlProviderExposingInterceptor;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Раздача /css и /js с долгим кэшированием в браузере. Ссылки в шаблонах (@{/css/...}) переписываются
+ * на адреса с хэшем содержимого (bootstrap.min-3f2a....css), поэтому файл по такому адресу можно кэшировать
+ * на год без перепроверки (immutable): после изменения файла у него будет другой адрес.
+ * Адрес без хэша (ссылка не через шаблон, закладка, карта исходников) отдается с no-cache:
+ * браузер хранит файл, но перепроверяет его по Last-Modified, иначе после обновления приложения
+ * он год показывал бы старую версию.
+ * Если клиент принимает gzip, отдается заранее сжатый при сборке вариант (.gz рядом с файлом, см. pom.xml).
+ */
+@Configuration
+public class StaticResourcesConfiguration implements WebMvcConfigurer {
+
+    private static final List<String> DIRECTORIES = List.of("css", "js");
+
+    private static final Duration MAX_AGE = Duration.ofDays(365);
+
+    private static final String VERSIONED = CacheControl.maxAge(MAX_AGE).cachePublic().immutable().getHeaderValue();
+
+    private static final String UNVERSIONED = CacheControl.noCache().cachePublic().getHeaderValue();
+
+    private static final ContentVersionStrategy VERSION_STRATEGY = new ContentVersionStrategy();
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (var directory : DIRECTORIES) {
+            registry.addResourceHandler("/" + directory + "/**")
+                    .addResourceLocations("classpath:/static/" + directory + "/")
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
+    }
+
+    /**
+     * Cache-Control для ресурсов выставляется до обработчика ресурсов: сам он применяет одно значение ко всем путям.
+     * Перехватчик выполняется после стандартных (порядок 0), которые кладут в запрос ResourceUrlProvider.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                var path = request.getRequestURI().substring(request.getContextPath().length());
+                var urlProvider = (ResourceUrlProvider) request.getAttribute(
+                        ResourceUrlProviderExposingInterceptor.RESOURCE_URL_PROVIDER_ATTR);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, isCurrentVersion(path, urlProvider) ? VERSIONED : UNVERSIONED);
+                return true;
+            }
+        }).addPathPatterns(DIRECTORIES.stream().map(directory -> "/" + directory + "/**").toList()).order(1);
+    }
+
+    /**
+     * Путь содержит версию, и это версия текущего содержимого файла. extractVersion находит "версию"
+     * и в обычных именах (jquery-3.7.0.min.js - "3.7.0.min"), а адрес с устаревшим хэшем отдает 404,
+     * поэтому путь сравнивается с адресом, который цепочка ресурсов строит для файла без версии
+     * (он кэшируется цепочкой и не пересчитывает хэш на каждый запрос).
+     */
+    private static boolean isCurrentVersion(String path, ResourceUrlProvider urlProvider) {
+        var version = VERSION_STRATEGY.extractVersion(path);
+        return version != null && urlProvider != null
+                && path.equals(urlProvider.getForLookupPath(VERSION_STRATEGY.removeVersion(path, version)));
+    }
+
+    /**
+     * Переписывает ссылки на ресурсы, которые строятся через HttpServletResponse.encodeURL (в том числе @{...} в Thymeleaf).
+     */
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Источник соединений для Sql2o, участвующий в транзакциях Spring (@Transactional).
+ * Внутри транзакции все вызовы репозиториев получают одно и то же соединение из пула,
+ * а фиксирует его менеджер транзакций один раз в конце операции сервиса.
+ * Sql2o управляет транзакциями сам (beginTransaction, commit, откат при закрытии соединения
+ * без автокоммита), поэтому в транзакции Spring соединение выглядит для него как соединение
+ * с автокоммитом: commit и смена режима игнорируются, а rollback помечает всю транзакцию на откат.
+ * Вне транзакции соединения ведут себя как обычно.
+ */
+public class TransactionalDataSource extends TransactionAwareDataSourceProxy {
+
+    public TransactionalDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        var connection = super.getConnection();
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> invokeInTransaction(connection, method, args));
+    }
+
+    private Object invokeInTransaction(Connection connection, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getAutoCommit":
+                return true;
+            case "setAutoCommit", "setTransactionIsolation", "commit":
+                return null;
+            case "rollback":
+                if (args == null) {
+                    markRollbackOnly();
+                    return null;
+                }
+                return invoke(connection, method, args);
+            default:
+                return invoke(connection, method, args);
+        }
+    }
+
+    private void markRollbackOnly() {
+        var holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(obtainTargetDataSource());
+        if (holder != null) {
+            holder.setRollbackOnly();
+        }
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -3,30 +3,69 @@ package ru.job4j.dreamjob.controller;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.thymeleaf.ITemplateEngine;
+import ru.job4j.dreamjob.dto.CandidateFilter;
 import ru.job4j.dreamjob.dto.FileDto;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.service.CandidateService;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.FragmentCacheService;
+
+import java.util.Map;
 
 @Controller
 @RequestMapping("/candidates")
 public class CandidateController {
 
+    private static final int PAGE_SIZE = 20;
+
     private final CandidateService candidateService;
     private final CityService cityService;
+    private final FragmentCacheService fragmentCacheService;
+    private final FragmentRenderer fragmentRenderer;
 
-    public CandidateController(CandidateService candidateService, CityService cityService) {
+    public CandidateController(CandidateService candidateService, CityService cityService,
+                               FragmentCacheService fragmentCacheService, ITemplateEngine templateEngine) {
         this.candidateService = candidateService;
         this.cityService = cityService;
+        this.fragmentCacheService = fragmentCacheService;
+        this.fragmentRenderer = new FragmentRenderer(templateEngine);
     }
 
+    /**
+     * Таблица кандидатов берется из кэша фрагментов по версии таблицы:
+     * при попадании кандидаты не читаются и шаблон таблицы не отрисовывается.
+     * Версия и кандидаты читаются в одной транзакции, из одной БД, а таблица отрисовывается после нее.
+     */
     @GetMapping
-    public String getAll(Model model) {
-        model.addAttribute("candidates", candidateService.findAllCandidate());
+    public String getAll(Model model, NativeWebRequest webRequest) {
+        var table = candidateService.readWithTableVersionCandidate(version -> {
+            if (ConditionalGet.notModified(webRequest, version)) {
+                return null;
+            }
+            return TableFragment.read(fragmentCacheService, FragmentCacheService.CANDIDATES, version.toString(), () ->
+                    Map.of("candidates", candidateService.findAllCandidate()));
+        });
+        if (table == null) {
+            return null;
+        }
+        model.addAttribute("table", table.render(fragmentCacheService, fragmentRenderer, webRequest, "candidates/table"));
         return "candidates/list";
     }
 
+    @GetMapping("/filter")
+    public String filter(Model model,
+                         @ModelAttribute("filter") CandidateFilter filter,
+                         @RequestParam(required = false) String after) {
+        var result = candidateService.filterCandidate(filter, after, PAGE_SIZE);
+        model.addAttribute("candidates", result.getItems());
+        model.addAttribute("result", result);
+        model.addAttribute("cities", cityService.findAll());
+        return "candidates/filter";
+    }
+
     @GetMapping("/create")
     public String getCreationPage(Model model) {
         model.addAttribute("cities", cityService.findAll());
@@ -36,7 +75,7 @@ public class CandidateController {
     @PostMapping("/create")
     public String create(@ModelAttribute Candidate candidate, @RequestParam MultipartFile file, Model model) {
         try {
-            candidateService.saveCandidate(candidate, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            candidateService.saveCandidate(candidate, new FileDto(file.getOriginalFilename(), file.getSize(), file));
             return "redirect:/candidates";
         } catch (Exception exception) {
             model.addAttribute("message", exception.getMessage());
@@ -44,8 +83,32 @@ public class CandidateController {
         }
     }
 
+    /**
+     * Страница просмотра строится из одного запроса к БД: кандидат, название города и сведения о файле
+     * читаются вместе, по версии из того же запроса проверяется, актуальна ли страница у клиента.
+     * Список городов загружается только для формы редактирования.
+     */
     @GetMapping("/{id}")
-    public String getById(Model model, @PathVariable int id) {
+    public String getById(Model model, NativeWebRequest webRequest, @PathVariable int id) {
+        var detailsOptional = candidateService.findDetailsByIdCandidate(id);
+        if (detailsOptional.isEmpty()) {
+            model.addAttribute("message", "Кандидат с указанным идентификатором не найден");
+            return "errors/404";
+        }
+        var details = detailsOptional.get();
+        if (ConditionalGet.notModified(webRequest, id + "." + details.getVersion())) {
+            return null;
+        }
+        model.addAttribute("candidate", details);
+        return "candidates/details";
+    }
+
+    @GetMapping("/{id}/edit")
+    public String getEditPage(Model model, NativeWebRequest webRequest, @PathVariable int id) {
+        var version = candidateService.findVersionByIdCandidate(id);
+        if (version.isPresent() && ConditionalGet.notModified(webRequest, id + "." + version.get())) {
+            return null;
+        }
         var candidateOptional = candidateService.findByIdCandidate(id);
         if (candidateOptional.isEmpty()) {
             model.addAttribute("message", "Кандидат с указанным идентификатором не найден");
@@ -59,7 +122,7 @@ public class CandidateController {
     @PostMapping("/update")
     public String update(@ModelAttribute Candidate candidate, @RequestParam MultipartFile file, Model model) {
         try {
-            var isUpdated = candidateService.updateCandidate(candidate, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            var isUpdated = candidateService.updateCandidate(candidate, new FileDto(file.getOriginalFilename(), file.getSize(), file));
             if (!isUpdated) {
                 model.addAttribute("message", "Кандидат с указанным идентификатором не найден");
                 return "errors/404";
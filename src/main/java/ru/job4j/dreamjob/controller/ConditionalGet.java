@@ -0,0 +1,38 @@
+package ru.job4j.dreamjob.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import ru.job4j.dreamjob.model.User;
+
+/**
+ * Условный GET для страниц, собранных из данных БД. ETag страницы складывается из версии данных,
+ * идентификатора пользователя (в шапке страницы выводится его имя) и времени запуска приложения
+ * (после перезапуска могли измениться шаблоны). Если клиент прислал тот же ETag в If-None-Match,
+ * ответ 304 отправляется без чтения строк и без отрисовки шаблона.
+ * Cache-Control: private, no-cache разрешает хранить страницу только в браузере
+ * и требует сверять ее с сервером при каждом показе.
+ */
+final class ConditionalGet {
+
+    private static final String STARTED = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * @param webRequest текущий запрос
+     * @param version версия данных, из которых строится страница
+     * @return true, если у клиента актуальная страница и ответ 304 уже подготовлен
+     */
+    static boolean notModified(NativeWebRequest webRequest, Object version) {
+        var response = webRequest.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        var user = (User) webRequest.getAttribute("user", RequestAttributes.SCOPE_REQUEST);
+        var userId = user == null ? 0 : user.getId();
+        return webRequest.checkNotModified("W/\"" + STARTED + "-" + userId + "-" + version + "\"");
+    }
+}
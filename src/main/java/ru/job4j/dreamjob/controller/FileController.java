@@ -1,11 +1,20 @@
 package ru.job4j.dreamjob.controller;
 
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.job4j.dreamjob.service.FileService;
+import ru.job4j.dreamjob.service.ImageVariantService;
+
+import java.io.IOException;
+import java.time.Duration;
 
 /**
  * REST контроллер для работы с файлами.
@@ -15,31 +24,62 @@ import ru.job4j.dreamjob.service.FileService;
 @RequestMapping("/files")
 public class FileController {
 
+    /**
+     * Содержимое файла с данным ID не меняется (при обновлении сохраняется новый файл),
+     * поэтому браузер может хранить его в кэше, а по истечении срока - перепроверить по ETag.
+     */
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePrivate();
+
     private final FileService fileService;
 
+    private final ImageVariantService imageVariantService;
+
     /**
      * Конструктор контроллера файлов.
      * @param fileService сервис для работы с файлами
+     * @param imageVariantService сервис уменьшенных копий изображений
      */
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, ImageVariantService imageVariantService) {
         this.fileService = fileService;
+        this.imageVariantService = imageVariantService;
     }
 
     /**
      * Обрабатывает GET-запрос на получение файла по ID.
-     * Возвращает содержимое файла в теле ответа.
+     * Содержимое передается потоком прямо с диска, без загрузки всего файла в память.
+     * Spring MVC по возвращаемому {@link Resource} сам выставляет Content-Length и Accept-Ranges,
+     * отвечает 206 на Range-запросы и 304 на условные запросы с совпадающими ETag/Last-Modified.
+     * Если передан параметр w, вместо оригинала отдается уменьшенная копия изображения.
      * @param id идентификатор файла
+     * @param width желаемая ширина изображения в пикселях (необязательный параметр)
      * @return ResponseEntity с содержимым файла или 404 если файл не найден
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getById(@PathVariable int id) {
-        // Получаем файл из сервиса по ID
-        var contentOptional = fileService.getFileById(id);
+    public ResponseEntity<Resource> getById(@PathVariable int id,
+                                            @RequestParam(name = "w", required = false) Integer width) {
+        // Получаем файл (или его уменьшенную копию) из сервиса по ID
+        var fileOptional = width == null
+                ? fileService.getFileResourceById(id)
+                : imageVariantService.getVariant(id, width);
         // Если файл не найден - возвращаем 404 Not Found
-        if (contentOptional.isEmpty()) {
+        if (fileOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        var resource = fileOptional.get().getResource();
+        var mediaType = MediaTypeFactory.getMediaType(fileOptional.get().getName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        try {
+            var lastModified = resource.lastModified();
+            var etag = Long.toHexString(lastModified) + "-" + Long.toHexString(resource.contentLength());
+            return ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .cacheControl(CACHE_CONTROL)
+                    .eTag(etag)
+                    .lastModified(lastModified)
+                    .body(resource);
+        } catch (IOException e) {
+            // Файл удален с диска между поиском и чтением атрибутов
             return ResponseEntity.notFound().build();
         }
-        // Если файл найден - возвращаем его содержимое в теле ответа
-        return ResponseEntity.ok(contentOptional.get().getContent());
     }
-}
\ No newline at end of file
+}
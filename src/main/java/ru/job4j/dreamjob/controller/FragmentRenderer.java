@@ -0,0 +1,50 @@
+package ru.job4j.dreamjob.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Map;
+
+/**
+ * Отрисовывает шаблон-фрагмент в строку для {@link ru.job4j.dreamjob.service.FragmentCacheService}.
+ * Ссылки (@{...}) строятся от пути приложения текущего запроса, но без URL rewriting:
+ * фрагмент общий для всех пользователей, и идентификатор сессии не должен попасть в ссылки.
+ */
+final class FragmentRenderer {
+
+    private final ITemplateEngine templateEngine;
+
+    FragmentRenderer(ITemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    String render(NativeWebRequest webRequest, String template, Map<String, Object> variables) {
+        var request = webRequest.getNativeRequest(HttpServletRequest.class);
+        var response = new WithoutUrlRewriting(webRequest.getNativeResponse(HttpServletResponse.class));
+        var exchange = JakartaServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, response);
+        return templateEngine.process(template, new WebContext(exchange, request.getLocale(), variables));
+    }
+
+    private static final class WithoutUrlRewriting extends HttpServletResponseWrapper {
+
+        private WithoutUrlRewriting(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            return url;
+        }
+    }
+}
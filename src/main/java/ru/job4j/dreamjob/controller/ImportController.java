@@ -0,0 +1,59 @@
+package ru.job4j.dreamjob.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.job4j.dreamjob.dto.ImportReport;
+import ru.job4j.dreamjob.service.ImportFormat;
+import ru.job4j.dreamjob.service.ImportService;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Пакетная загрузка вакансий и кандидатов от партнеров.
+ * Тело запроса - NDJSON (application/x-ndjson) или CSV (text/csv), оно читается потоком,
+ * в кодировке из параметра charset (по умолчанию UTF-8), поэтому размер загрузки не ограничен памятью. В ответ возвращается отчет с ошибками по строкам.
+ */
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+
+    private static final String NDJSON = MediaType.APPLICATION_NDJSON_VALUE;
+
+    private static final String CSV = "text/csv";
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(value = "/vacancies", consumes = {NDJSON, CSV})
+    public ImportReport importVacancies(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                        InputStream body) {
+        return importService.importVacancies(body, formatOf(contentType), charsetOf(contentType));
+    }
+
+    @PostMapping(value = "/candidates", consumes = {NDJSON, CSV})
+    public ImportReport importCandidates(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                         InputStream body) {
+        return importService.importCandidates(body, formatOf(contentType), charsetOf(contentType));
+    }
+
+    private ImportFormat formatOf(MediaType contentType) {
+        return ImportFormat.of(contentType).orElseThrow();
+    }
+
+    /**
+     * Кодировка из параметра charset заголовка Content-Type, по умолчанию UTF-8.
+     * Неизвестную кодировку Spring отклоняет с кодом 415 еще при разборе заголовка.
+     */
+    private Charset charsetOf(MediaType contentType) {
+        return contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+    }
+}
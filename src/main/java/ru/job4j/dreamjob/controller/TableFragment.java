@@ -0,0 +1,54 @@
+package ru.job4j.dreamjob.controller;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import ru.job4j.dreamjob.service.FragmentCacheService;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Таблица списка, прочитанная в транзакции вместе с версией таблицы: готовый фрагмент из кэша
+ * или переменные шаблона, если фрагмента в кэше нет. Шаблон отрисовывается уже после транзакции
+ * ({@link #render}), чтобы соединение с БД не удерживалось на время работы шаблонизатора.
+ */
+final class TableFragment {
+
+    private final String region;
+
+    private final String key;
+
+    private final String fragment;
+
+    private final Map<String, Object> variables;
+
+    private TableFragment(String region, String key, String fragment, Map<String, Object> variables) {
+        this.region = region;
+        this.key = key;
+        this.fragment = fragment;
+        this.variables = variables;
+    }
+
+    /**
+     * Берет фрагмент из кэша, а при промахе читает данные для его отрисовки.
+     * @param key ключ фрагмента, включающий версию таблицы, прочитанную в той же транзакции, что и данные
+     * @param reader чтение переменных шаблона при промахе
+     */
+    static TableFragment read(FragmentCacheService cache, String region, String key,
+                              Supplier<Map<String, Object>> reader) {
+        return cache.findFragment(region, key)
+                .map(fragment -> new TableFragment(region, key, fragment, null))
+                .orElseGet(() -> new TableFragment(region, key, null, reader.get()));
+    }
+
+    /**
+     * Возвращает фрагмент из кэша или отрисовывает прочитанные данные и кладет результат в кэш.
+     */
+    String render(FragmentCacheService cache, FragmentRenderer renderer, NativeWebRequest webRequest, String template) {
+        if (fragment != null) {
+            return fragment;
+        }
+        var rendered = renderer.render(webRequest, template, variables);
+        cache.putFragment(region, key, rendered);
+        return rendered;
+    }
+}
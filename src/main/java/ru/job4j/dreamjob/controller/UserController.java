@@ -1,7 +1,6 @@
 package ru.job4j.dreamjob.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,6 +11,8 @@ import ru.job4j.dreamjob.model.User;
 import ru.job4j.dreamjob.service.UserService;
 
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 @RequestMapping("/users")
@@ -43,21 +44,36 @@ public class UserController {
         return "users/login";
     }
 
+    /**
+     * Пароль проверяется в ограниченном пуле хэширования, а поток запроса (виртуальный) ждет результата:
+     * сессия и модель меняются только в потоке запроса.
+     */
     @PostMapping("/login")
     public String loginUser(@ModelAttribute User user, Model model, HttpServletRequest request) {
-        var userOptional = userService.findByEmailAndPassword(user.getEmail(), user.getPassword());
+        Optional<User> userOptional;
+        try {
+            userOptional = userService.login(user.getEmail(), user.getPassword()).join();
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof RejectedExecutionException)) {
+                throw e;
+            }
+            model.addAttribute("error", "Сервис входа перегружен, попробуйте через несколько секунд");
+            return "users/login";
+        }
         if (userOptional.isEmpty()) {
             model.addAttribute("error", "Почта или пароль введены неверно");
             return "users/login";
         }
-        var session = request.getSession();
-        session.setAttribute("user", userOptional.get());
+        request.getSession().setAttribute("user", userOptional.get());
         return "redirect:/vacancies";
     }
 
     @GetMapping("/logout")
-    public String logout(HttpSession session) {
-        session.invalidate();
+    public String logout(HttpServletRequest request) {
+        var session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
         return "redirect:/users/login";
     }
 }
\ No newline at end of file
@@ -3,30 +3,86 @@ package ru.job4j.dreamjob.controller;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.thymeleaf.ITemplateEngine;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.FragmentCacheService;
 import ru.job4j.dreamjob.service.VacancyService;
 
+import java.util.Map;
+
 @Controller
 @RequestMapping("/vacancies")
 public class VacancyController {
 
+    private static final int PAGE_SIZE = 20;
+
     private final VacancyService vacancyService;
     private final CityService cityService;
+    private final FragmentCacheService fragmentCacheService;
+    private final FragmentRenderer fragmentRenderer;
 
-    public VacancyController(VacancyService vacancyService, CityService cityService) {
+    public VacancyController(VacancyService vacancyService, CityService cityService,
+                             FragmentCacheService fragmentCacheService, ITemplateEngine templateEngine) {
         this.vacancyService = vacancyService;
         this.cityService = cityService;
+        this.fragmentCacheService = fragmentCacheService;
+        this.fragmentRenderer = new FragmentRenderer(templateEngine);
     }
 
+    /**
+     * Таблица вакансий берется из кэша фрагментов по версии таблицы и курсорам страницы:
+     * при попадании вакансии не читаются и шаблон таблицы не отрисовывается.
+     * Версия и страница читаются в одной транзакции, из одной БД, а таблица отрисовывается после нее.
+     */
     @GetMapping
-    public String getAll(Model model) {
-        model.addAttribute("vacancies", vacancyService.findAll());
+    public String getAll(Model model, NativeWebRequest webRequest,
+                         @RequestParam(required = false) String after,
+                         @RequestParam(required = false) String before) {
+        var cursors = "?after=" + cursorKey(after) + "&before=" + cursorKey(before);
+        var table = vacancyService.readWithTableVersion(version -> {
+            if (ConditionalGet.notModified(webRequest, version)) {
+                return null;
+            }
+            return TableFragment.read(fragmentCacheService, FragmentCacheService.VACANCIES, version + cursors, () -> {
+                var page = vacancyService.findPage(after, before, PAGE_SIZE);
+                return Map.of("vacancies", page.getItems(), "page", page);
+            });
+        });
+        if (table == null) {
+            return null;
+        }
+        model.addAttribute("table", table.render(fragmentCacheService, fragmentRenderer, webRequest, "vacancies/table"));
         return "vacancies/list";
     }
 
+    @GetMapping("/search")
+    public String search(Model model,
+                         @RequestParam(name = "q", required = false) String query,
+                         @RequestParam(required = false) String after) {
+        var page = vacancyService.search(query, after, PAGE_SIZE);
+        model.addAttribute("vacancies", page.getItems());
+        model.addAttribute("page", page);
+        model.addAttribute("query", query);
+        return "vacancies/search";
+    }
+
+    @GetMapping("/filter")
+    public String filter(Model model,
+                         @ModelAttribute("filter") VacancyFilter filter,
+                         @RequestParam(required = false) String after) {
+        var result = vacancyService.filter(filter, after, PAGE_SIZE);
+        model.addAttribute("vacancies", result.getItems());
+        model.addAttribute("result", result);
+        model.addAttribute("cities", cityService.findAll());
+        return "vacancies/filter";
+    }
+
     @GetMapping("/create")
     public String getCreationPage(Model model) {
         model.addAttribute("cities", cityService.findAll());
@@ -36,7 +92,7 @@ public class VacancyController {
     @PostMapping("/create")
     public String create(@ModelAttribute Vacancy vacancy, @RequestParam MultipartFile file, Model model) {
         try {
-            vacancyService.save(vacancy, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            vacancyService.save(vacancy, new FileDto(file.getOriginalFilename(), file.getSize(), file));
             return "redirect:/vacancies";
         } catch (Exception exception) {
             model.addAttribute("message", exception.getMessage());
@@ -44,8 +100,32 @@ public class VacancyController {
         }
     }
 
+    /**
+     * Страница просмотра строится из одного запроса к БД: вакансия, название города и сведения о файле
+     * читаются вместе, по версии из того же запроса проверяется, актуальна ли страница у клиента.
+     * Список городов загружается только для формы редактирования.
+     */
     @GetMapping("/{id}")
-    public String getById(Model model, @PathVariable int id) {
+    public String getById(Model model, NativeWebRequest webRequest, @PathVariable int id) {
+        var detailsOptional = vacancyService.findDetailsById(id);
+        if (detailsOptional.isEmpty()) {
+            model.addAttribute("message", "Вакансия с указанным идентификатором не найдена");
+            return "errors/404";
+        }
+        var details = detailsOptional.get();
+        if (ConditionalGet.notModified(webRequest, id + "." + details.getVersion())) {
+            return null;
+        }
+        model.addAttribute("vacancy", details);
+        return "vacancies/details";
+    }
+
+    @GetMapping("/{id}/edit")
+    public String getEditPage(Model model, NativeWebRequest webRequest, @PathVariable int id) {
+        var version = vacancyService.findVersionById(id);
+        if (version.isPresent() && ConditionalGet.notModified(webRequest, id + "." + version.get())) {
+            return null;
+        }
         var vacancyOptional = vacancyService.findById(id);
         if (vacancyOptional.isEmpty()) {
             model.addAttribute("message", "Вакансия с указанным идентификатором не найдена");
@@ -59,7 +139,7 @@ public class VacancyController {
     @PostMapping("/update")
     public String update(@ModelAttribute Vacancy vacancy, @RequestParam MultipartFile file, Model model) {
         try {
-            var isUpdated = vacancyService.update(vacancy, new FileDto(file.getOriginalFilename(), file.getBytes()));
+            var isUpdated = vacancyService.update(vacancy, new FileDto(file.getOriginalFilename(), file.getSize(), file));
             if (!isUpdated) {
                 model.addAttribute("message", "Вакансия с указанным идентификатором не найдена");
                 return "errors/404";
@@ -76,4 +156,13 @@ public class VacancyController {
         vacancyService.deleteById(id);
         return "redirect:/vacancies";
     }
-}
\ No newline at end of file
+
+    /**
+     * Курсор в ключе кэша фрагментов: разобранный и записанный заново, а отсутствующий или поврежденный,
+     * который страница вакансий не учитывает, - одним значением. Иначе произвольные строки в параметрах
+     * запроса давали бы каждая свой фрагмент и вытесняли бы из кэша настоящие страницы.
+     */
+    private static String cursorKey(String cursor) {
+        return PageCursor.decode(cursor).map(PageCursor::encode).orElse("none");
+    }
+}
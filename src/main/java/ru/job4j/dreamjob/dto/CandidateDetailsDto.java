@@ -0,0 +1,100 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Данные страницы просмотра кандидата: поля кандидата, название города и сведения о файле фотографии
+ * читаются одним запросом с соединением таблиц. Если у кандидата нет файла, fileName равно null.
+ */
+public class CandidateDetailsDto {
+
+    private int id;
+
+    private String name;
+
+    private String description;
+
+    private LocalDateTime creationDate;
+
+    private String cityName;
+
+    private int fileId;
+
+    private String fileName;
+
+    private long fileSize;
+
+    private int version;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public void setCityName(String cityName) {
+        this.cityName = cityName;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(int fileId) {
+        this.fileId = fileId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
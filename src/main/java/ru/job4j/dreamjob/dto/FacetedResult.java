@@ -0,0 +1,43 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результат отбора по условиям: страница записей и количество подходящих записей по городам.
+ * Количество по городам считается без учета условия на город, чтобы было видно,
+ * сколько записей найдется при выборе другого города.
+ */
+public class FacetedResult<T> {
+
+    private final List<T> items;
+
+    private final Map<Integer, Long> cityCounts;
+
+    private final String nextCursor;
+
+    public FacetedResult(List<T> items, Map<Integer, Long> cityCounts, String nextCursor) {
+        this.items = items;
+        this.cityCounts = cityCounts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return количество записей по id города, по убыванию количества
+     */
+    public Map<Integer, Long> getCityCounts() {
+        return cityCounts;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
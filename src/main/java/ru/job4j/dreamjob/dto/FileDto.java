@@ -1,5 +1,12 @@
 package ru.job4j.dreamjob.dto;
 
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
 /**
  * (Data Transfer Object) класс FileDto. Это такой объект, который используется для передачи данных между различными уровнями (слоями) приложения,
  * например, между слоями контроллеров и сервисов. Классы в пакете model отражают доменные объекты, их структура отражает структуру объектов из предметной области.
@@ -8,10 +15,24 @@ package ru.job4j.dreamjob.dto;
 public class FileDto {
     private String name;
 
-    private byte[] content; /*тут кроется различие. доменная модель хранит путь, а не содержимое*/
+    private long size;
+
+    private InputStreamSource content; /*тут кроется различие. доменная модель хранит путь, а не содержимое*/
 
     public FileDto(String name, byte[] content) {
+        this(name, content.length, new ByteArrayResource(content));
+    }
+
+    /**
+     * Создает DTO, содержимое которого читается потоком по требованию, например из загруженной
+     * multipart-части: так файл не приходится целиком держать в памяти.
+     * @param name имя файла
+     * @param size размер содержимого в байтах
+     * @param content источник содержимого
+     */
+    public FileDto(String name, long size, InputStreamSource content) {
         this.name = name;
+        this.size = size;
         this.content = content;
     }
 
@@ -23,11 +44,31 @@ public class FileDto {
         this.name = name;
     }
 
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public InputStream getInputStream() throws IOException {
+        return content.getInputStream();
+    }
+
+    /**
+     * Читает содержимое целиком. Предназначен для небольших файлов, для записи на диск используйте {@link #getInputStream()}.
+     */
     public byte[] getContent() {
-        return content;
+        try (var input = content.getInputStream()) {
+            return input.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public void setContent(byte[] content) {
-        this.content = content;
+        this.size = content.length;
+        this.content = new ByteArrayResource(content);
     }
 }
@@ -0,0 +1,27 @@
+package ru.job4j.dreamjob.dto;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Файл для отдачи клиенту без чтения в память: исходное имя (по нему определяется тип содержимого)
+ * и ресурс, из которого содержимое передается потоком.
+ */
+public class FileResourceDto {
+
+    private final String name;
+
+    private final Resource resource;
+
+    public FileResourceDto(String name, Resource resource) {
+        this.name = name;
+        this.resource = resource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.job4j.dreamjob.dto;
+
+/**
+ * Ошибка импорта одной строки входных данных.
+ */
+public class ImportError {
+
+    private final int line;
+
+    private final String message;
+
+    public ImportError(int line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог пакетного импорта: сколько строк сохранено, сколько отклонено и почему.
+ * Подробности хранятся только для первых {@link #MAX_ERRORS} ошибок, чтобы отчет
+ * по большому файлу с систематической ошибкой не занимал память без ограничений.
+ */
+public class ImportReport {
+
+    public static final int MAX_ERRORS = 1000;
+
+    private int imported;
+
+    private int failed;
+
+    private final List<ImportError> errors = new ArrayList<>();
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addError(int line, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ImportError(line, message));
+        }
+    }
+
+    public int getTotal() {
+        return imported + failed;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+}
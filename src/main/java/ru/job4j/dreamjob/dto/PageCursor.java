@@ -0,0 +1,70 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Курсор для постраничного (keyset) обхода записей, упорядоченных по паре (creation_date, id).
+ * Вместо OFFSET запоминается ключ граничной записи страницы, поэтому стоимость запроса
+ * не зависит от того, насколько далеко пользователь ушел по списку.
+ */
+public class PageCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final LocalDateTime creationDate;
+
+    private final int id;
+
+    public PageCursor(LocalDateTime creationDate, int id) {
+        this.creationDate = creationDate;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Сравнивает курсор с ключом записи в порядке (creation_date, id).
+     * @return отрицательное число, если курсор меньше ключа записи, 0 при равенстве, иначе положительное
+     */
+    public int compareTo(LocalDateTime otherCreationDate, int otherId) {
+        var result = creationDate.compareTo(otherCreationDate);
+        return result != 0 ? result : Integer.compare(id, otherId);
+    }
+
+    /**
+     * Представляет курсор в виде строки для передачи в параметрах запроса.
+     */
+    public String encode() {
+        return creationDate + SEPARATOR + id;
+    }
+
+    /**
+     * Восстанавливает курсор из строки, полученной методом {@link #encode()}.
+     * @param value строковое представление курсора, может быть null
+     * @return Optional с курсором или пустой Optional, если строка отсутствует или повреждена
+     */
+    public static Optional<PageCursor> decode(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        var index = value.lastIndexOf(SEPARATOR);
+        if (index <= 0) {
+            return Optional.empty();
+        }
+        try {
+            var creationDate = LocalDateTime.parse(value.substring(0, index));
+            var id = Integer.parseInt(value.substring(index + 1));
+            return Optional.of(new PageCursor(creationDate, id));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
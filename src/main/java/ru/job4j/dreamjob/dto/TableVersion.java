@@ -0,0 +1,43 @@
+package ru.job4j.dreamjob.dto;
+
+import java.util.Objects;
+
+/**
+ * Версия содержимого таблицы целиком: счетчик изменений таблицы, который каждое добавление,
+ * изменение и удаление строк увеличивает в той же транзакции. Проверка версии читает одну строку
+ * и не зависит от размера таблицы.
+ */
+public class TableVersion {
+
+    private final long version;
+
+    public TableVersion(long version) {
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TableVersion that = (TableVersion) o;
+        return version == that.version;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(version);
+    }
+}
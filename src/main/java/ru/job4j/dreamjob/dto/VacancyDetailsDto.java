@@ -0,0 +1,110 @@
+package ru.job4j.dreamjob.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Данные страницы просмотра вакансии: поля вакансии, название города и сведения о файле изображения
+ * читаются одним запросом с соединением таблиц. Если у вакансии нет файла, fileName равно null.
+ */
+public class VacancyDetailsDto {
+
+    private int id;
+
+    private String title;
+
+    private String description;
+
+    private LocalDateTime creationDate;
+
+    private boolean visible;
+
+    private String cityName;
+
+    private int fileId;
+
+    private String fileName;
+
+    private long fileSize;
+
+    private int version;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public boolean getVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public void setCityName(String cityName) {
+        this.cityName = cityName;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(int fileId) {
+        this.fileId = fileId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+}
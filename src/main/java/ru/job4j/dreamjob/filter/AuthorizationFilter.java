@@ -21,7 +21,8 @@ public class AuthorizationFilter extends HttpFilter {
             chain.doFilter(request, response);
             return;
         }
-        var userLoggedIn = request.getSession().getAttribute("user") != null;
+        var session = request.getSession(false);
+        var userLoggedIn = session != null && session.getAttribute("user") != null;
         if (!userLoggedIn) {
             var loginPageUrl = request.getContextPath() + "/users/login";
             response.sendRedirect(loginPageUrl);
@@ -30,10 +31,15 @@ public class AuthorizationFilter extends HttpFilter {
         chain.doFilter(request, response);
     }
 
+    /**
+     * Без входа доступна только проверка состояния (/actuator/health и ее группы): остальные эндпоинты
+     * actuator раскрывают размеры пулов, адреса и задержки запросов, статистику кэшей и состояние реплики.
+     */
     private boolean isAlwaysPermitted(String uri) {
-        return uri.startsWith("/users/register")
+        return StaticResources.isStatic(uri)
+                || uri.startsWith("/users/register")
                 || uri.startsWith("/users/login")
-                || uri.startsWith("/js")
-                || uri.startsWith("/css");
+                || uri.equals("/actuator/health")
+                || uri.startsWith("/actuator/health/");
     }
 }
\ No newline at end of file
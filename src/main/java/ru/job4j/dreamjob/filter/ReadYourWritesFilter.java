@@ -0,0 +1,56 @@
+package ru.job4j.dreamjob.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.job4j.dreamjob.configuration.ReplicaProperties;
+import ru.job4j.dreamjob.repository.PrimaryPinning;
+
+import java.io.IOException;
+
+/**
+ * Чтение своих записей при реплике: если запрос что-то записал в основную БД, сессия на время
+ * datasource.replica.read-your-writes-window читает только из основной БД. Так после сохранения
+ * вакансии перенаправление на ее страницу не покажет старую версию с отстающей реплики.
+ * Без реплики и для статических ресурсов фильтр ничего не делает.
+ */
+@Component
+@Order(3)
+public class ReadYourWritesFilter extends HttpFilter {
+
+    private static final String PINNED_UNTIL = "primaryPinnedUntil";
+
+    private final ReplicaProperties replica;
+
+    public ReadYourWritesFilter(ReplicaProperties replica) {
+        this.replica = replica;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!replica.isConfigured() || StaticResources.isStatic(request.getRequestURI())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        PrimaryPinning.beginRequest(isPinned(request.getSession(false)));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            var written = PrimaryPinning.endRequest();
+            var session = request.getSession(false);
+            if (written && session != null) {
+                session.setAttribute(PINNED_UNTIL, System.currentTimeMillis() + replica.getReadYourWritesWindow().toMillis());
+            }
+        }
+    }
+
+    private boolean isPinned(HttpSession session) {
+        var pinnedUntil = session == null ? null : (Long) session.getAttribute(PINNED_UNTIL);
+        return pinnedUntil != null && pinnedUntil > System.currentTimeMillis();
+    }
+}
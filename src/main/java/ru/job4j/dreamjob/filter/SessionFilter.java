@@ -5,30 +5,41 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import ru.job4j.dreamjob.model.User;
 
 import java.io.IOException;
 
+/**
+ * Кладет в атрибут запроса user пользователя из сессии, а если входа не было, общего гостя.
+ * Сессия здесь не создается: она появляется только при входе, поэтому анонимные запросы
+ * (страницы входа и регистрации, обходчики) не занимают память сервера и не получают cookie.
+ * Статические ресурсы фильтр пропускает без обработки.
+ */
 @Component
 @Order(2)
 public class SessionFilter extends HttpFilter {
 
+    private static final User GUEST = guest();
+
     @Override
     protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
-        var session = request.getSession();
-        addUserToSession(session, request);
+        if (!StaticResources.isStatic(request.getRequestURI())) {
+            request.setAttribute("user", currentUser(request));
+        }
         chain.doFilter(request, response);
     }
 
-    private void addUserToSession(HttpSession session, HttpServletRequest request) {
-        var user = (User) session.getAttribute("user");
-        if (user == null) {
-            user = new User();
-            user.setName("Гость");
-        }
-        request.setAttribute("user", user);
+    private User currentUser(HttpServletRequest request) {
+        var session = request.getSession(false);
+        var user = session == null ? null : (User) session.getAttribute("user");
+        return user == null ? GUEST : user;
+    }
+
+    private static User guest() {
+        var user = new User();
+        user.setName("Гость");
+        return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package ru.job4j.dreamjob.filter;
+
+/**
+ * Пути статических ресурсов (src/main/resources/static). Они одинаковы для всех пользователей,
+ * поэтому фильтры не проверяют для них вход и не обращаются к сессии.
+ */
+final class StaticResources {
+
+    private StaticResources() {
+    }
+
+    static boolean isStatic(String uri) {
+        return uri.startsWith("/js/")
+                || uri.startsWith("/css/")
+                || uri.equals("/favicon.ico");
+    }
+}
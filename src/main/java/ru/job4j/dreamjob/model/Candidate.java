@@ -1,20 +1,10 @@
 package ru.job4j.dreamjob.model;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.Objects;
 
 public class Candidate {
 
-    public static final Map<String, String> COLUMN_MAPPING = Map.of(
-            "id", "id",
-            "name", "name",
-            "description", "description",
-            "creation_date", "creationDate",
-            "city_id", "cityId",
-            "file_id", "fileId"
-    );
-
     private int id;
 
     private String name;
@@ -27,6 +17,11 @@ public class Candidate {
 
     private int fileId;
 
+    /**
+     * Номер версии записи: 1 при создании, увеличивается при каждом изменении.
+     */
+    private int version = 1;
+
     public Candidate() {
 
     }
@@ -88,6 +83,14 @@ public class Candidate {
         this.creationDate = creationDate;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -10,11 +10,22 @@ public class File {
 
     private String path;
 
+    private long size;
+
+    private String checksum;
+
     public File(String name, String path) {
         this.name = name;
         this.path = path;
     }
 
+    public File(String name, String path, long size, String checksum) {
+        this.name = name;
+        this.path = path;
+        this.size = size;
+        this.checksum = checksum;
+    }
+
     public int getId() {
         return id;
     }
@@ -39,6 +50,22 @@ public class File {
         this.path = path;
     }
 
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -1,21 +1,10 @@
 package ru.job4j.dreamjob.model;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.Objects;
 
 public class Vacancy {
 
-    public static final Map<String, String> COLUMN_MAPPING = Map.of(
-            "id", "id",
-            "title", "title",
-            "description", "description",
-            "creation_date", "creationDate",
-            "visible", "visible",
-            "city_id", "cityId",
-            "file_id", "fileId"
-    );
-
     private int id;
 
     private String title;
@@ -30,6 +19,11 @@ public class Vacancy {
 
     private int fileId;
 
+    /**
+     * Номер версии записи: 1 при создании, увеличивается при каждом изменении.
+     */
+    private int version = 1;
+
     public Vacancy() {
     }
 
@@ -100,6 +94,14 @@ public class Vacancy {
         this.creationDate = creationDate;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,51 @@
+package ru.job4j.dreamjob.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Загрузка значений в кэш Caffeine вне блокировки его внутренней карты. Cache.get(key, loader)
+ * выполняет загрузку внутри ConcurrentHashMap.compute, то есть в synchronized на корзине карты,
+ * и виртуальный поток, читающий значение из БД или отрисовывающий шаблон, занимает (pinned) поток-носитель
+ * на все время загрузки. Здесь под блокировкой карты в кэш кладется только незавершенный CompletableFuture,
+ * а загрузка идет в вызывающем потоке, в его транзакции. Параллельные запросы того же ключа ждут этот future,
+ * не занимая носитель. Если ключ сброшен во время загрузки, future удален из кэша, и загруженное
+ * (возможно, уже устаревшее) значение в кэш не попадет. Null и ошибки загрузки в кэше не остаются.
+ */
+public final class CacheLoading {
+
+    private CacheLoading() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        var cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return await(cached, loader);
+        }
+        var future = new CompletableFuture<V>();
+        var running = cache.asMap().putIfAbsent(key, future);
+        if (running != null) {
+            return await(running, loader);
+        }
+        try {
+            var value = loader.get();
+            future.complete(value);
+            return value;
+        } finally {
+            // После ошибки загрузки запись удаляется из кэша, ожидающие загружают значение сами
+            future.completeExceptionally(new CancellationException());
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future, Supplier<V> loader) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return loader.get();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.job4j.dreamjob.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.model.Candidate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Кэш кандидатов по id перед {@link Sql2oCandidateRepository}.
+ * Устроен так же, как {@link CachingVacancyRepository}; метрики публикуются с тегом cache=candidates.
+ */
+@ThreadSafe
+@Repository
+public class CachingCandidateRepository implements CandidateRepository {
+
+    private final CandidateRepository candidateRepository;
+
+    private final AsyncCache<Integer, Candidate> cache;
+
+    public CachingCandidateRepository(CandidateRepository sql2oCandidateRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${cache.entities.maximum-size:1000}") long maximumSize,
+                                      @Value("${cache.entities.expire-after-write:PT5M}") Duration expireAfterWrite) {
+        this.candidateRepository = sql2oCandidateRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "candidates");
+    }
+
+    @Override
+    public Candidate saveCandidate(Candidate candidate) {
+        var saved = candidateRepository.saveCandidate(candidate);
+        invalidate(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public void saveAllCandidate(List<Candidate> candidates) {
+        candidateRepository.saveAllCandidate(candidates);
+    }
+
+    @Override
+    public boolean deleteByIdCandidate(int id) {
+        var isDeleted = candidateRepository.deleteByIdCandidate(id);
+        invalidate(id);
+        return isDeleted;
+    }
+
+    @Override
+    public boolean updateCandidate(Candidate candidate) {
+        var isUpdated = candidateRepository.updateCandidate(candidate);
+        invalidate(candidate.getId());
+        return isUpdated;
+    }
+
+    /**
+     * Сбрасывает запись сразу и еще раз после завершения транзакции: пока изменение не зафиксировано,
+     * параллельный запрос мог загрузить в кэш прежнее значение.
+     */
+    private void invalidate(int id) {
+        cache.synchronous().invalidate(id);
+        TransactionCallbacks.afterCompletion(() -> cache.synchronous().invalidate(id));
+    }
+
+    /**
+     * Загрузка в кэш, как и у вакансий, идет из основной БД.
+     */
+    @Override
+    public Optional<Candidate> findByIdCandidate(int id) {
+        return Optional.ofNullable(CacheLoading.get(cache, id,
+                () -> PrimaryPinning.onPrimary(() -> candidateRepository.findByIdCandidate(id)).orElse(null)));
+    }
+
+    @Override
+    public Collection<Candidate> findAllCandidate() {
+        return candidateRepository.findAllCandidate();
+    }
+
+    /**
+     * Данные страницы читаются мимо кэша: по их версии проверяется, не устарела ли страница у клиента.
+     */
+    @Override
+    public Optional<CandidateDetailsDto> findDetailsByIdCandidate(int id) {
+        return candidateRepository.findDetailsByIdCandidate(id);
+    }
+
+    /**
+     * Версия читается мимо кэша: по ней проверяется, не устарела ли страница у клиента.
+     */
+    @Override
+    public Optional<Integer> findVersionByIdCandidate(int id) {
+        return candidateRepository.findVersionByIdCandidate(id);
+    }
+
+    @Override
+    public TableVersion findTableVersionCandidate() {
+        return candidateRepository.findTableVersionCandidate();
+    }
+
+    @Override
+    public FacetedResult<Candidate> findByFilterCandidate(CandidateFilter filter, PageCursor cursor, int limit) {
+        return candidateRepository.findByFilterCandidate(filter, cursor, limit);
+    }
+}
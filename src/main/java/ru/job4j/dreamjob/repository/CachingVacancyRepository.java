@@ -0,0 +1,141 @@
+package ru.job4j.dreamjob.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Кэш вакансий по id перед {@link IndexedVacancyRepository}.
+ * Размер кэша ограничен, вытеснение W-TinyLFU (Caffeine) удерживает часто просматриваемые вакансии,
+ * записи также устаревают по времени. Изменяющие операции сначала пишут в БД, затем сбрасывают запись:
+ * сброс во время загрузки отменяет ее попадание в кэш, поэтому старое значение не переживет сброс.
+ * Загрузка идет вне блокировок кэша ({@link CacheLoading}) и не занимает поток-носитель виртуального потока.
+ * Статистика (попадания, промахи, вытеснения) публикуется как метрики cache.* с тегом cache=vacancies.
+ */
+@ThreadSafe
+@Repository
+public class CachingVacancyRepository implements VacancyRepository {
+
+    private final VacancyRepository vacancyRepository;
+
+    private final AsyncCache<Integer, Vacancy> cache;
+
+    public CachingVacancyRepository(VacancyRepository indexedVacancyRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${cache.entities.maximum-size:1000}") long maximumSize,
+                                    @Value("${cache.entities.expire-after-write:PT5M}") Duration expireAfterWrite) {
+        this.vacancyRepository = indexedVacancyRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "vacancies");
+    }
+
+    @Override
+    public Vacancy save(Vacancy vacancy) {
+        var saved = vacancyRepository.save(vacancy);
+        invalidate(saved.getId());
+        return saved;
+    }
+
+    @Override
+    public void saveAll(List<Vacancy> vacancies) {
+        vacancyRepository.saveAll(vacancies);
+    }
+
+    @Override
+    public void deleteById(int id) {
+        vacancyRepository.deleteById(id);
+        invalidate(id);
+    }
+
+    @Override
+    public boolean update(Vacancy vacancy) {
+        var isUpdated = vacancyRepository.update(vacancy);
+        invalidate(vacancy.getId());
+        return isUpdated;
+    }
+
+    /**
+     * Сбрасывает запись сразу и еще раз после завершения транзакции: пока изменение не зафиксировано,
+     * параллельный запрос мог загрузить в кэш прежнее значение.
+     */
+    private void invalidate(int id) {
+        cache.synchronous().invalidate(id);
+        TransactionCallbacks.afterCompletion(() -> cache.synchronous().invalidate(id));
+    }
+
+    /**
+     * Возвращает вакансию из кэша или загружает ее из БД. Отсутствующие вакансии не кэшируются.
+     * Загрузка идет из основной БД: отстающая реплика оставила бы в кэше прежнюю версию
+     * на все время жизни записи, а не на время отставания.
+     */
+    @Override
+    public Optional<Vacancy> findById(int id) {
+        return Optional.ofNullable(CacheLoading.get(cache, id,
+                () -> PrimaryPinning.onPrimary(() -> vacancyRepository.findById(id)).orElse(null)));
+    }
+
+    @Override
+    public Collection<Vacancy> findAll() {
+        return vacancyRepository.findAll();
+    }
+
+    /**
+     * Данные страницы читаются мимо кэша: по их версии проверяется, не устарела ли страница у клиента.
+     */
+    @Override
+    public Optional<VacancyDetailsDto> findDetailsById(int id) {
+        return vacancyRepository.findDetailsById(id);
+    }
+
+    /**
+     * Версия читается мимо кэша: по ней проверяется, не устарела ли страница у клиента.
+     */
+    @Override
+    public Optional<Integer> findVersionById(int id) {
+        return vacancyRepository.findVersionById(id);
+    }
+
+    @Override
+    public TableVersion findTableVersion() {
+        return vacancyRepository.findTableVersion();
+    }
+
+    @Override
+    public List<Vacancy> findPageAfter(PageCursor cursor, int limit) {
+        return vacancyRepository.findPageAfter(cursor, limit);
+    }
+
+    @Override
+    public List<Vacancy> findPageBefore(PageCursor cursor, int limit) {
+        return vacancyRepository.findPageBefore(cursor, limit);
+    }
+
+    @Override
+    public List<Vacancy> search(String query, int offset, int limit) {
+        return vacancyRepository.search(query, offset, limit);
+    }
+
+    @Override
+    public FacetedResult<Vacancy> findByFilter(VacancyFilter filter, PageCursor cursor, int limit) {
+        return vacancyRepository.findByFilter(filter, cursor, limit);
+    }
+}
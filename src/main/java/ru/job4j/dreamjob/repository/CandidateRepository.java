@@ -1,13 +1,27 @@
 package ru.job4j.dreamjob.repository;
 
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
 import ru.job4j.dreamjob.model.Candidate;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CandidateRepository {
 
     Candidate saveCandidate(Candidate candidate);
 
+    /**
+     * Сохраняет кандидатов одним пакетом (JDBC batch) в одной транзакции.
+     * Если хотя бы одна строка не сохранилась, транзакция откатывается целиком и бросается исключение.
+     * Сохраненным кандидатам присваиваются сгенерированные идентификаторы.
+     * @param candidates кандидаты для сохранения
+     */
+    void saveAllCandidate(List<Candidate> candidates);
+
     boolean deleteByIdCandidate(int id);
 
     boolean updateCandidate(Candidate candidate);
@@ -15,4 +29,29 @@ public interface CandidateRepository {
     Optional<Candidate> findByIdCandidate(int id);
 
     Collection<Candidate> findAllCandidate();
+
+    /**
+     * Возвращает данные страницы просмотра кандидата вместе с названием города и сведениями о файле.
+     */
+    Optional<CandidateDetailsDto> findDetailsByIdCandidate(int id);
+
+    /**
+     * Возвращает только версию кандидата, не читая остальные поля.
+     */
+    Optional<Integer> findVersionByIdCandidate(int id);
+
+    /**
+     * Возвращает версию таблицы кандидатов: она меняется при любом добавлении, изменении или удалении.
+     */
+    TableVersion findTableVersionCandidate();
+
+    /**
+     * Отбирает кандидатов по условиям (сначала новые) и в том же запросе к БД считает,
+     * сколько кандидатов подходит под условия в каждом городе (без учета условия на город).
+     * Заполняются поля списка: id, name, creationDate, cityId.
+     * @param filter условия отбора
+     * @param cursor ключ последней записи предыдущей страницы или null для первой страницы
+     * @param limit максимальное количество записей
+     */
+    FacetedResult<Candidate> findByFilterCandidate(CandidateFilter filter, PageCursor cursor, int limit);
 }
@@ -0,0 +1,74 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Построитель условия WHERE из необязательных критериев отбора.
+ * Критерий с пустым (null) значением пропускается, значения передаются только параметрами запроса.
+ */
+final class Criteria {
+
+    private final List<String> conditions = new ArrayList<>();
+
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    /**
+     * Добавляет условие, если значение задано.
+     * @param condition SQL-условие с именованным параметром, например "city_id = :cityId"
+     * @param name имя параметра в условии
+     * @param value значение параметра или null
+     */
+    Criteria add(String condition, String name, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            parameters.put(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * Добавляет условие с несколькими параметрами.
+     */
+    Criteria add(String condition, Map<String, Object> values) {
+        conditions.add(condition);
+        parameters.putAll(values);
+        return this;
+    }
+
+    Criteria copy() {
+        var copy = new Criteria();
+        copy.conditions.addAll(conditions);
+        copy.parameters.putAll(parameters);
+        return copy;
+    }
+
+    String where() {
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Передает в запрос значения параметров.
+     */
+    Query bind(Query query) {
+        parameters.forEach(query::addParameter);
+        return query;
+    }
+
+    /**
+     * Упорядочивает количество записей по городам по убыванию количества.
+     * Записи без города (city_id = NULL) в результат не попадают.
+     */
+    static Map<Integer, Long> byCountDescending(Map<Integer, Long> cityCounts) {
+        var sorted = new LinkedHashMap<Integer, Long>();
+        cityCounts.entrySet().stream()
+                .filter(entry -> entry.getKey() != null)
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+}
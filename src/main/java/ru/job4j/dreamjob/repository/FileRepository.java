@@ -10,5 +10,31 @@ public interface FileRepository {
 
     Optional<File> findById(int id);
 
+    Optional<File> findByPath(String path);
+
+    /**
+     * Находит файл по пути и блокирует его запись до конца транзакции: параллельные сохранения
+     * и удаления того же содержимого ждут друг друга на этой записи.
+     */
+    Optional<File> findByPathForUpdate(String path);
+
+    /**
+     * Сохраняет файл, если файла с таким путем еще нет.
+     * @return false, если путь уже занят (в том числе записью параллельной транзакции, которая была зафиксирована)
+     */
+    boolean saveIfAbsent(File file);
+
+    /**
+     * Увеличивает счетчик ссылок на файл.
+     * @return false, если файла уже нет (например, последняя ссылка была только что удалена)
+     */
+    boolean addReference(int id);
+
+    /**
+     * Уменьшает счетчик ссылок на файл и удаляет запись, если ссылок не осталось.
+     * @return true, если запись удалена и файл на диске больше не нужен
+     */
+    boolean removeReference(int id);
+
     void deleteById(int id);
-}
\ No newline at end of file
+}
@@ -0,0 +1,302 @@
+package ru.job4j.dreamjob.repository;
+
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Полнотекстовый поиск вакансий по инвертированному индексу Lucene перед {@link Sql2oVacancyRepository}.
+ * Индекс хранится в директории search.index.directory и пересоздается из БД при каждом запуске,
+ * а затем поддерживается в актуальном состоянии при сохранении, изменении и удалении вакансий.
+ * Изменения попадают в индекс после фиксации транзакции, чтобы откат не оставлял в поиске несуществующих вакансий.
+ * Релевантность считается по BM25, совпадения в названии весят больше совпадений в описании,
+ * слова приводятся к основе (русская морфология), поэтому "разработчика" находит "разработчик".
+ * Поля для списка (название, дата, видимость) хранятся в индексе, и поиск не обращается к БД.
+ */
+@ThreadSafe
+@Repository
+public class IndexedVacancyRepository implements VacancyRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexedVacancyRepository.class);
+
+    private static final String ID = "id";
+
+    private static final String TITLE = "title";
+
+    private static final String DESCRIPTION = "description";
+
+    private static final String CREATION_DATE = "creationDate";
+
+    private static final String VISIBLE = "visible";
+
+    private static final float TITLE_BOOST = 3f;
+
+    private final VacancyRepository vacancyRepository;
+
+    private final Analyzer analyzer = new RussianAnalyzer();
+
+    private final IndexWriter writer;
+
+    private final SearcherManager searcherManager;
+
+    /**
+     * Изменения индекса при сохранении вакансий идут параллельно друг другу (под блокировкой чтения),
+     * а перестроение берет блокировку записи: изменение, записанное в БД во время перестроения,
+     * попадет в индекс после него и не будет перезаписано прочитанной ранее версией.
+     */
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public IndexedVacancyRepository(VacancyRepository sql2oVacancyRepository,
+                                    @Value("${search.index.directory:search-index}") String indexDirectory) {
+        this.vacancyRepository = sql2oVacancyRepository;
+        try {
+            var config = new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+            this.writer = new IndexWriter(FSDirectory.open(Path.of(indexDirectory)), config);
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть поисковый индекс: " + indexDirectory, e);
+        }
+    }
+
+    /**
+     * Заполняет индекс всеми вакансиями из БД после запуска приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        var lock = rebuildLock.writeLock();
+        lock.lock();
+        try {
+            writer.deleteAll();
+            var count = 0;
+            for (var vacancy : vacancyRepository.findAll()) {
+                writer.addDocument(toDocument(vacancy));
+                count++;
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            LOGGER.info("Поисковый индекс вакансий построен, документов: {}", count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось построить поисковый индекс", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    @Override
+    public Vacancy save(Vacancy vacancy) {
+        var saved = vacancyRepository.save(vacancy);
+        TransactionCallbacks.afterCommit(() -> index(List.of(saved)));
+        return saved;
+    }
+
+    @Override
+    public void saveAll(List<Vacancy> vacancies) {
+        vacancyRepository.saveAll(vacancies);
+        TransactionCallbacks.afterCommit(() -> index(vacancies));
+    }
+
+    @Override
+    public void deleteById(int id) {
+        vacancyRepository.deleteById(id);
+        TransactionCallbacks.afterCommit(() -> changeIndex(() -> writer.deleteDocuments(new Term(ID, String.valueOf(id)))));
+    }
+
+    /**
+     * В индекс попадает строка, перечитанная из основной БД после фиксации, а не объект из формы:
+     * в нем нет полей, которые изменение не трогает (дата создания), а строку к этому времени
+     * могли изменить или удалить другие транзакции.
+     */
+    @Override
+    public boolean update(Vacancy vacancy) {
+        var isUpdated = vacancyRepository.update(vacancy);
+        if (isUpdated) {
+            var id = vacancy.getId();
+            TransactionCallbacks.afterCommit(() -> PrimaryPinning.onPrimary(() -> vacancyRepository.findById(id))
+                    .ifPresentOrElse(saved -> index(List.of(saved)),
+                            () -> changeIndex(() -> writer.deleteDocuments(new Term(ID, String.valueOf(id))))));
+        }
+        return isUpdated;
+    }
+
+    @Override
+    public Optional<Vacancy> findById(int id) {
+        return vacancyRepository.findById(id);
+    }
+
+    @Override
+    public Collection<Vacancy> findAll() {
+        return vacancyRepository.findAll();
+    }
+
+    @Override
+    public Optional<VacancyDetailsDto> findDetailsById(int id) {
+        return vacancyRepository.findDetailsById(id);
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(int id) {
+        return vacancyRepository.findVersionById(id);
+    }
+
+    @Override
+    public TableVersion findTableVersion() {
+        return vacancyRepository.findTableVersion();
+    }
+
+    @Override
+    public List<Vacancy> findPageAfter(PageCursor cursor, int limit) {
+        return vacancyRepository.findPageAfter(cursor, limit);
+    }
+
+    @Override
+    public List<Vacancy> findPageBefore(PageCursor cursor, int limit) {
+        return vacancyRepository.findPageBefore(cursor, limit);
+    }
+
+    @Override
+    public List<Vacancy> search(String query, int offset, int limit) {
+        var luceneQuery = toQuery(query);
+        if (luceneQuery == null) {
+            return List.of();
+        }
+        try {
+            var searcher = searcherManager.acquire();
+            try {
+                var hits = searcher.search(luceneQuery, (int) Math.min((long) offset + limit, Integer.MAX_VALUE)).scoreDocs;
+                var storedFields = searcher.storedFields();
+                var vacancies = new ArrayList<Vacancy>();
+                for (var i = offset; i < hits.length; i++) {
+                    vacancies.add(toVacancy(storedFields.document(hits[i].doc)));
+                }
+                return vacancies;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка поиска по индексу", e);
+        }
+    }
+
+    /**
+     * Строит запрос: любое слово запроса в названии (с повышенным весом) или в описании.
+     * Возвращает null, если после анализа в запросе не осталось слов (например, только стоп-слова).
+     */
+    private Query toQuery(String text) {
+        var builder = new QueryBuilder(analyzer);
+        var title = builder.createBooleanQuery(TITLE, text, BooleanClause.Occur.SHOULD);
+        var description = builder.createBooleanQuery(DESCRIPTION, text, BooleanClause.Occur.SHOULD);
+        if (title == null && description == null) {
+            return null;
+        }
+        var query = new BooleanQuery.Builder();
+        if (title != null) {
+            query.add(new BoostQuery(title, TITLE_BOOST), BooleanClause.Occur.SHOULD);
+        }
+        if (description != null) {
+            query.add(description, BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    private void index(List<Vacancy> vacancies) {
+        changeIndex(() -> {
+            for (var vacancy : vacancies) {
+                writer.updateDocument(new Term(ID, String.valueOf(vacancy.getId())), toDocument(vacancy));
+            }
+        });
+    }
+
+    /**
+     * Применяет изменение к индексу и делает его видимым для следующих поисков.
+     */
+    private void changeIndex(IndexChange change) {
+        var lock = rebuildLock.readLock();
+        lock.lock();
+        try {
+            change.apply();
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось обновить поисковый индекс", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Document toDocument(Vacancy vacancy) {
+        var document = new Document();
+        document.add(new StringField(ID, String.valueOf(vacancy.getId()), Field.Store.YES));
+        document.add(new TextField(TITLE, vacancy.getTitle(), Field.Store.YES));
+        if (vacancy.getDescription() != null) {
+            document.add(new TextField(DESCRIPTION, vacancy.getDescription(), Field.Store.NO));
+        }
+        if (vacancy.getCreationDate() != null) {
+            document.add(new StoredField(CREATION_DATE, vacancy.getCreationDate().toString()));
+        }
+        document.add(new StoredField(VISIBLE, vacancy.getVisible() ? 1 : 0));
+        return document;
+    }
+
+    private Vacancy toVacancy(Document document) {
+        var vacancy = new Vacancy();
+        vacancy.setId(Integer.parseInt(document.get(ID)));
+        vacancy.setTitle(document.get(TITLE));
+        var creationDate = document.get(CREATION_DATE);
+        vacancy.setCreationDate(creationDate == null ? null : LocalDateTime.parse(creationDate));
+        vacancy.setVisible(document.getField(VISIBLE).numericValue().intValue() == 1);
+        return vacancy;
+    }
+
+    private interface IndexChange {
+        void apply() throws IOException;
+    }
+
+    @Override
+    public FacetedResult<Vacancy> findByFilter(VacancyFilter filter, PageCursor cursor, int limit) {
+        return vacancyRepository.findByFilter(filter, cursor, limit);
+    }
+}
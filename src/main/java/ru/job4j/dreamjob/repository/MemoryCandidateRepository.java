@@ -2,14 +2,25 @@ package ru.job4j.dreamjob.repository;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @ThreadSafe
 @Repository
@@ -17,10 +28,16 @@ public class MemoryCandidateRepository implements CandidateRepository {
 
     private static final MemoryCandidateRepository INSTANCE_NEW = new MemoryCandidateRepository();
 
+    private static final Comparator<Candidate> NEWEST_FIRST = Comparator.comparing(Candidate::getCreationDate)
+            .thenComparingInt(Candidate::getId)
+            .reversed();
+
     private final AtomicInteger nextId = new AtomicInteger(1);
 
     private final Map<Integer, Candidate> candidates = new ConcurrentHashMap<>();
 
+    private final AtomicLong tableVersion = new AtomicLong(1);
+
     private MemoryCandidateRepository() {
         saveCandidate(new Candidate(0, "Bob", "просто описание", LocalDateTime.now(), 1, 0));
         saveCandidate(new Candidate(0, "Cat", "просто описание", LocalDateTime.now(), 1, 0));
@@ -39,26 +56,43 @@ public class MemoryCandidateRepository implements CandidateRepository {
         candidate.setId(nextId.getAndIncrement());
         candidate.setCreationDate(LocalDateTime.now());
         candidates.put(candidate.getId(), candidate);
+        tableVersion.incrementAndGet();
         return candidate;
     }
 
+    @Override
+    public void saveAllCandidate(List<Candidate> candidates) {
+        candidates.forEach(this::saveCandidate);
+    }
+
     @Override
     public boolean deleteByIdCandidate(int id) {
         Candidate removed = candidates.remove(id);
+        if (removed != null) {
+            tableVersion.incrementAndGet();
+        }
         return removed != null;
     }
 
     @Override
     public boolean updateCandidate(Candidate candidate) {
-        return candidates.computeIfPresent(candidate.getId(),
-                (id, oldCandidate) -> new Candidate(
-                        oldCandidate.getId(),
-                        candidate.getName(),
-                        candidate.getDescription(),
-                        oldCandidate.getCreationDate(),
-                        candidate.getCityId(),
-                        candidate.getFileId()
-                )) != null;
+        var isUpdated = candidates.computeIfPresent(candidate.getId(),
+                (id, oldCandidate) -> {
+                    var updated = new Candidate(
+                            oldCandidate.getId(),
+                            candidate.getName(),
+                            candidate.getDescription(),
+                            oldCandidate.getCreationDate(),
+                            candidate.getCityId(),
+                            candidate.getFileId()
+                    );
+                    updated.setVersion(oldCandidate.getVersion() + 1);
+                    return updated;
+                }) != null;
+        if (isUpdated) {
+            tableVersion.incrementAndGet();
+        }
+        return isUpdated;
     }
 
     @Override
@@ -70,4 +104,56 @@ public class MemoryCandidateRepository implements CandidateRepository {
     public Collection<Candidate> findAllCandidate() {
         return candidates.values();
     }
-}
\ No newline at end of file
+
+    /**
+     * Справочника городов и файлов в памяти нет: название города и сведения о файле не заполняются.
+     */
+    @Override
+    public Optional<CandidateDetailsDto> findDetailsByIdCandidate(int id) {
+        return findByIdCandidate(id).map(MemoryCandidateRepository::toDetails);
+    }
+
+    private static CandidateDetailsDto toDetails(Candidate candidate) {
+        var details = new CandidateDetailsDto();
+        details.setId(candidate.getId());
+        details.setName(candidate.getName());
+        details.setDescription(candidate.getDescription());
+        details.setCreationDate(candidate.getCreationDate());
+        details.setFileId(candidate.getFileId());
+        details.setVersion(candidate.getVersion());
+        return details;
+    }
+
+    @Override
+    public Optional<Integer> findVersionByIdCandidate(int id) {
+        return findByIdCandidate(id).map(Candidate::getVersion);
+    }
+
+    @Override
+    public TableVersion findTableVersionCandidate() {
+        return new TableVersion(tableVersion.get());
+    }
+
+    @Override
+    public FacetedResult<Candidate> findByFilterCandidate(CandidateFilter filter, PageCursor cursor, int limit) {
+        var from = filter.getCreatedFrom() == null ? null : filter.getCreatedFrom().atStartOfDay();
+        var to = filter.getCreatedTo() == null ? null : filter.getCreatedTo().plusDays(1).atStartOfDay();
+        Predicate<Candidate> facet = candidate -> (from == null || !candidate.getCreationDate().isBefore(from))
+                && (to == null || candidate.getCreationDate().isBefore(to));
+        var items = candidates.values().stream()
+                .filter(facet)
+                .filter(candidate -> filter.getCityId() == null || filter.getCityId() == candidate.getCityId())
+                .filter(candidate -> cursor == null || cursor.compareTo(candidate.getCreationDate(), candidate.getId()) > 0)
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+        var cityCounts = new LinkedHashMap<Integer, Long>();
+        candidates.values().stream()
+                .filter(facet)
+                .collect(Collectors.groupingBy(Candidate::getCityId, Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .forEach(entry -> cityCounts.put(entry.getKey(), entry.getValue()));
+        return new FacetedResult<>(items, cityCounts, null);
+    }
+}
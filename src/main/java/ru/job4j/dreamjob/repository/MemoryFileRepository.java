@@ -15,10 +15,21 @@ public class MemoryFileRepository implements FileRepository {
 
     private final Map<Integer, File> files = new ConcurrentHashMap<>();
 
+    private final Map<Integer, Integer> references = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> idsByPath = new ConcurrentHashMap<>();
+
     @Override
     public File save(File file) {
+        store(file);
+        idsByPath.put(file.getPath(), file.getId());
+        return file;
+    }
+
+    private File store(File file) {
         file.setId(nextId.incrementAndGet());
         files.put(file.getId(), file);
+        references.put(file.getId(), 1);
         return file;
     }
 
@@ -27,8 +38,48 @@ public class MemoryFileRepository implements FileRepository {
         return Optional.ofNullable(files.get(id));
     }
 
+    @Override
+    public Optional<File> findByPath(String path) {
+        return Optional.ofNullable(idsByPath.get(path)).map(files::get);
+    }
+
+    @Override
+    public Optional<File> findByPathForUpdate(String path) {
+        return findByPath(path);
+    }
+
+    /**
+     * Путь занимается атомарно в idsByPath: из параллельных сохранений одного пути сохраняется одно.
+     */
+    @Override
+    public boolean saveIfAbsent(File file) {
+        var id = idsByPath.computeIfAbsent(file.getPath(), path -> store(file).getId());
+        return files.get(id) == file;
+    }
+
+    @Override
+    public boolean addReference(int id) {
+        return references.computeIfPresent(id, (key, count) -> count + 1) != null;
+    }
+
+    @Override
+    public boolean removeReference(int id) {
+        var remaining = references.computeIfPresent(id, (key, count) -> count > 1 ? count - 1 : null);
+        return remaining == null && remove(id);
+    }
+
     @Override
     public void deleteById(int id) {
-        files.remove(id);
+        references.remove(id);
+        remove(id);
+    }
+
+    private boolean remove(int id) {
+        var file = files.remove(id);
+        if (file == null) {
+            return false;
+        }
+        idsByPath.remove(file.getPath(), id);
+        return true;
     }
 }
\ No newline at end of file
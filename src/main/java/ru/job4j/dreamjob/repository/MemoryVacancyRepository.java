@@ -1,14 +1,26 @@
 package ru.job4j.dreamjob.repository;
 
 import org.springframework.stereotype.Repository;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -16,10 +28,16 @@ import net.jcip.annotations.ThreadSafe;
 @Repository
 public class MemoryVacancyRepository implements VacancyRepository {
 
+    private static final Comparator<Vacancy> NEWEST_FIRST = Comparator.comparing(Vacancy::getCreationDate)
+            .thenComparingInt(Vacancy::getId)
+            .reversed();
+
     private final AtomicInteger nextId = new AtomicInteger(1);
 
     private final Map<Integer, Vacancy> vacancies = new ConcurrentHashMap<>();
 
+    private final AtomicLong tableVersion = new AtomicLong(1);
+
     public MemoryVacancyRepository() {
         save(new Vacancy(0, "Intern Java Developer", "Стажер Java разработчик", LocalDateTime.now(), true, 1, 0));
         save(new Vacancy(0, "Junior Java Developer", "Младший Java разработчик", LocalDateTime.now(), true, 1, 0));
@@ -34,20 +52,34 @@ public class MemoryVacancyRepository implements VacancyRepository {
         vacancy.setId(nextId.getAndIncrement());
         vacancy.setCreationDate(LocalDateTime.now());
         vacancies.put(vacancy.getId(), vacancy);
+        tableVersion.incrementAndGet();
         return vacancy;
     }
 
+    @Override
+    public void saveAll(List<Vacancy> vacancies) {
+        vacancies.forEach(this::save);
+    }
+
     @Override
     public void deleteById(int id) {
-        vacancies.remove(id);
+        if (vacancies.remove(id) != null) {
+            tableVersion.incrementAndGet();
+        }
     }
 
     @Override
     public boolean update(Vacancy vacancy) {
-        return vacancies.computeIfPresent(vacancy.getId(), (id, oldVacancy) -> new Vacancy(
-                oldVacancy.getId(), vacancy.getTitle(), vacancy.getDescription(),
-                vacancy.getCreationDate(), vacancy.getVisible(), vacancy.getCityId(), vacancy.getFileId()
-        )) != null;
+        var isUpdated = vacancies.computeIfPresent(vacancy.getId(), (id, oldVacancy) -> {
+            var updated = new Vacancy(oldVacancy.getId(), vacancy.getTitle(), vacancy.getDescription(),
+                    vacancy.getCreationDate(), vacancy.getVisible(), vacancy.getCityId(), vacancy.getFileId());
+            updated.setVersion(oldVacancy.getVersion() + 1);
+            return updated;
+        }) != null;
+        if (isUpdated) {
+            tableVersion.incrementAndGet();
+        }
+        return isUpdated;
     }
 
     @Override
@@ -59,4 +91,93 @@ public class MemoryVacancyRepository implements VacancyRepository {
     public Collection<Vacancy> findAll() {
         return vacancies.values();
     }
-}
\ No newline at end of file
+
+    /**
+     * Справочника городов и файлов в памяти нет: название города и сведения о файле не заполняются.
+     */
+    @Override
+    public Optional<VacancyDetailsDto> findDetailsById(int id) {
+        return findById(id).map(MemoryVacancyRepository::toDetails);
+    }
+
+    private static VacancyDetailsDto toDetails(Vacancy vacancy) {
+        var details = new VacancyDetailsDto();
+        details.setId(vacancy.getId());
+        details.setTitle(vacancy.getTitle());
+        details.setDescription(vacancy.getDescription());
+        details.setCreationDate(vacancy.getCreationDate());
+        details.setVisible(vacancy.getVisible());
+        details.setFileId(vacancy.getFileId());
+        details.setVersion(vacancy.getVersion());
+        return details;
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(int id) {
+        return findById(id).map(Vacancy::getVersion);
+    }
+
+    @Override
+    public TableVersion findTableVersion() {
+        return new TableVersion(tableVersion.get());
+    }
+
+    @Override
+    public List<Vacancy> findPageAfter(PageCursor cursor, int limit) {
+        return vacancies.values().stream()
+                .filter(vacancy -> cursor == null
+                        || cursor.compareTo(vacancy.getCreationDate(), vacancy.getId()) > 0)
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Vacancy> findPageBefore(PageCursor cursor, int limit) {
+        var newer = vacancies.values().stream()
+                .filter(vacancy -> cursor.compareTo(vacancy.getCreationDate(), vacancy.getId()) < 0)
+                .sorted(NEWEST_FIRST)
+                .toList();
+        return newer.subList(Math.max(0, newer.size() - limit), newer.size());
+    }
+
+    @Override
+    public List<Vacancy> search(String query, int offset, int limit) {
+        var text = query.toLowerCase();
+        Comparator<Vacancy> titleFirst = Comparator.comparing(vacancy -> !contains(vacancy.getTitle(), text));
+        return vacancies.values().stream()
+                .filter(vacancy -> contains(vacancy.getTitle(), text) || contains(vacancy.getDescription(), text))
+                .sorted(titleFirst.thenComparing(NEWEST_FIRST))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
+    private static boolean contains(String field, String text) {
+        return Objects.toString(field, "").toLowerCase().contains(text);
+    }
+
+    @Override
+    public FacetedResult<Vacancy> findByFilter(VacancyFilter filter, PageCursor cursor, int limit) {
+        var from = filter.getCreatedFrom() == null ? null : filter.getCreatedFrom().atStartOfDay();
+        var to = filter.getCreatedTo() == null ? null : filter.getCreatedTo().plusDays(1).atStartOfDay();
+        Predicate<Vacancy> facet = vacancy -> (filter.getVisible() == null || filter.getVisible() == vacancy.getVisible())
+                && (from == null || !vacancy.getCreationDate().isBefore(from))
+                && (to == null || vacancy.getCreationDate().isBefore(to));
+        var items = vacancies.values().stream()
+                .filter(facet)
+                .filter(vacancy -> filter.getCityId() == null || filter.getCityId() == vacancy.getCityId())
+                .filter(vacancy -> cursor == null || cursor.compareTo(vacancy.getCreationDate(), vacancy.getId()) > 0)
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+        var cityCounts = new LinkedHashMap<Integer, Long>();
+        vacancies.values().stream()
+                .filter(facet)
+                .collect(Collectors.groupingBy(Vacancy::getCityId, Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .forEach(entry -> cityCounts.put(entry.getKey(), entry.getValue()));
+        return new FacetedResult<>(items, cityCounts, null);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.job4j.dreamjob.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * Закрепление чтения за основной БД, когда реплика может отставать от только что записанных данных.
+ * Запрос закрепляется фильтром ReadYourWritesFilter, если сессия недавно что-то записала, и сам
+ * закрепляется после первой записи. Отдельный вызов можно выполнить на основной БД через onPrimary.
+ * Состояние хранится в потоке, выполняющем запрос; вне запроса записи не отмечаются.
+ */
+public final class PrimaryPinning {
+
+    private static final ThreadLocal<RequestState> REQUEST = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> FORCED = new ThreadLocal<>();
+
+    private PrimaryPinning() {
+    }
+
+    public static void beginRequest(boolean pinned) {
+        var state = new RequestState();
+        state.pinned = pinned;
+        REQUEST.set(state);
+    }
+
+    /**
+     * Завершает запрос и возвращает, была ли в нем запись в основную БД.
+     */
+    public static boolean endRequest() {
+        var state = REQUEST.get();
+        REQUEST.remove();
+        return state != null && state.written;
+    }
+
+    public static void markWritten() {
+        var state = REQUEST.get();
+        if (state != null) {
+            state.written = true;
+            state.pinned = true;
+        }
+    }
+
+    public static boolean isPinned() {
+        var state = REQUEST.get();
+        return state != null && state.pinned || FORCED.get() != null;
+    }
+
+    /**
+     * Выполняет действие на основной БД. Действует на соединения, взятые внутри действия:
+     * если транзакция уже получила соединение с реплики, запросы продолжат идти в него.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (FORCED.get() != null) {
+            return action.get();
+        }
+        FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            FORCED.remove();
+        }
+    }
+
+    private static final class RequestState {
+
+        private boolean pinned;
+
+        private boolean written;
+    }
+}
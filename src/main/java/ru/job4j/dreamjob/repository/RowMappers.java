@@ -0,0 +1,125 @@
+package ru.job4j.dreamjob.repository;
+
+import org.sql2o.ResultSetHandler;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Преобразование строк ResultSet в модели без рефлексии: колонки читаются по номеру,
+ * на строку создается только сам объект модели. Стандартный путь sql2o для каждой строки
+ * ищет колонки по имени, конвертирует значения через Converter и вызывает сеттеры через рефлексию.
+ * Порядок колонок задан константами *_COLUMNS, запросы должны выбирать колонки именно в этом порядке.
+ */
+final class RowMappers {
+
+    static final String VACANCY_COLUMNS = "id, title, description, creation_date, visible, city_id, file_id, version";
+
+    static final ResultSetHandler<Vacancy> VACANCY = RowMappers::vacancy;
+
+    /**
+     * Колонки строки списка вакансий: описание, город и файл в списке не показываются.
+     */
+    static final String VACANCY_ITEM_COLUMNS = "id, title, creation_date, visible";
+
+    static final ResultSetHandler<Vacancy> VACANCY_ITEM = RowMappers::vacancyItem;
+
+    /**
+     * Колонки страницы просмотра вакансии: v - вакансии, c - города, f - файлы.
+     */
+    static final String VACANCY_DETAILS_COLUMNS = "v.id, v.title, v.description, v.creation_date, v.visible, c.name, "
+            + "v.file_id, f.name, f.size, v.version";
+
+    static final ResultSetHandler<VacancyDetailsDto> VACANCY_DETAILS = RowMappers::vacancyDetails;
+
+    static final String CANDIDATE_COLUMNS = "id, name, description, creation_date, city_id, file_id, version";
+
+    static final ResultSetHandler<Candidate> CANDIDATE = RowMappers::candidate;
+
+    /**
+     * Колонки страницы просмотра кандидата: k - кандидаты, c - города, f - файлы.
+     */
+    static final String CANDIDATE_DETAILS_COLUMNS = "k.id, k.name, k.description, k.creation_date, c.name, "
+            + "k.file_id, f.name, f.size, k.version";
+
+    static final ResultSetHandler<CandidateDetailsDto> CANDIDATE_DETAILS = RowMappers::candidateDetails;
+
+    static final String FILE_COLUMNS = "id, name, path, size, checksum";
+
+    static final ResultSetHandler<File> FILE = RowMappers::file;
+
+    static final String USER_COLUMNS = "id, email, name, password";
+
+    static final ResultSetHandler<User> USER = resultSet -> new User(resultSet.getInt(1), resultSet.getString(2),
+            resultSet.getString(3), resultSet.getString(4));
+
+    static final String CITY_COLUMNS = "id, name";
+
+    static final ResultSetHandler<City> CITY = resultSet -> new City(resultSet.getInt(1), resultSet.getString(2));
+
+    private RowMappers() {
+    }
+
+    private static Vacancy vacancy(ResultSet resultSet) throws SQLException {
+        var vacancy = new Vacancy(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+                resultSet.getObject(4, LocalDateTime.class), resultSet.getBoolean(5),
+                resultSet.getInt(6), resultSet.getInt(7));
+        vacancy.setVersion(resultSet.getInt(8));
+        return vacancy;
+    }
+
+    private static Vacancy vacancyItem(ResultSet resultSet) throws SQLException {
+        return new Vacancy(resultSet.getInt(1), resultSet.getString(2), null,
+                resultSet.getObject(3, LocalDateTime.class), resultSet.getBoolean(4), 0, 0);
+    }
+
+    private static VacancyDetailsDto vacancyDetails(ResultSet resultSet) throws SQLException {
+        var details = new VacancyDetailsDto();
+        details.setId(resultSet.getInt(1));
+        details.setTitle(resultSet.getString(2));
+        details.setDescription(resultSet.getString(3));
+        details.setCreationDate(resultSet.getObject(4, LocalDateTime.class));
+        details.setVisible(resultSet.getBoolean(5));
+        details.setCityName(resultSet.getString(6));
+        details.setFileId(resultSet.getInt(7));
+        details.setFileName(resultSet.getString(8));
+        details.setFileSize(resultSet.getLong(9));
+        details.setVersion(resultSet.getInt(10));
+        return details;
+    }
+
+    private static Candidate candidate(ResultSet resultSet) throws SQLException {
+        var candidate = new Candidate(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+                resultSet.getObject(4, LocalDateTime.class), resultSet.getInt(5), resultSet.getInt(6));
+        candidate.setVersion(resultSet.getInt(7));
+        return candidate;
+    }
+
+    private static CandidateDetailsDto candidateDetails(ResultSet resultSet) throws SQLException {
+        var details = new CandidateDetailsDto();
+        details.setId(resultSet.getInt(1));
+        details.setName(resultSet.getString(2));
+        details.setDescription(resultSet.getString(3));
+        details.setCreationDate(resultSet.getObject(4, LocalDateTime.class));
+        details.setCityName(resultSet.getString(5));
+        details.setFileId(resultSet.getInt(6));
+        details.setFileName(resultSet.getString(7));
+        details.setFileSize(resultSet.getLong(8));
+        details.setVersion(resultSet.getInt(9));
+        return details;
+    }
+
+    private static File file(ResultSet resultSet) throws SQLException {
+        var file = new File(resultSet.getString(2), resultSet.getString(3), resultSet.getLong(4), resultSet.getString(5));
+        file.setId(resultSet.getInt(1));
+        return file;
+    }
+}
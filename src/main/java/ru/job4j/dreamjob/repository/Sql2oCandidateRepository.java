@@ -1,15 +1,32 @@
 package ru.job4j.dreamjob.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
 import ru.job4j.dreamjob.model.Candidate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+@Timed("repository.calls")
 @Repository
 public class Sql2oCandidateRepository implements CandidateRepository {
 
+    private static final Comparator<Candidate> NEWEST_FIRST = Comparator.comparing(Candidate::getCreationDate)
+            .thenComparingInt(Candidate::getId)
+            .reversed();
+
     private final Sql2o sql2o;
 
     public Sql2oCandidateRepository(Sql2o sql2o) {
@@ -18,7 +35,7 @@ public class Sql2oCandidateRepository implements CandidateRepository {
 
     @Override
     public Candidate saveCandidate(Candidate candidate) {
-        try (var connection = sql2o.open()) {
+        try (var connection = sql2o.beginTransaction()) {
             var sql = """
                     INSERT INTO candidates(name, description, creation_date, city_id, file_id)
                     VALUES (:name, :description, :creationDate, :cityId, :fileId)
@@ -31,27 +48,58 @@ public class Sql2oCandidateRepository implements CandidateRepository {
                     .addParameter("fileId", candidate.getFileId());
             int generatedId = query.executeUpdate().getKey(Integer.class);
             candidate.setId(generatedId);
+            TableVersions.increment(sql2o, connection, TableVersions.CANDIDATES);
+            connection.commit();
             return candidate;
         }
     }
 
+    @Override
+    public void saveAllCandidate(List<Candidate> candidates) {
+        try (var connection = sql2o.beginTransaction()) {
+            var sql = """
+                    INSERT INTO candidates(name, description, creation_date, city_id, file_id)
+                    VALUES (:name, :description, :creationDate, :cityId, :fileId)
+                    """;
+            var query = connection.createQuery(sql, true);
+            for (var candidate : candidates) {
+                query.addParameter("name", candidate.getName())
+                        .addParameter("description", candidate.getDescription())
+                        .addParameter("creationDate", candidate.getCreationDate())
+                        .addParameter("cityId", candidate.getCityId())
+                        .addParameter("fileId", candidate.getFileId() == 0 ? null : candidate.getFileId())
+                        .addToBatch();
+            }
+            var generatedIds = query.executeBatch().getKeys(Integer.class);
+            for (var i = 0; i < generatedIds.size(); i++) {
+                candidates.get(i).setId(generatedIds.get(i));
+            }
+            TableVersions.increment(sql2o, connection, TableVersions.CANDIDATES);
+            connection.commit();
+        }
+    }
+
     @Override
     public boolean deleteByIdCandidate(int id) {
-        try (var connection = sql2o.open()) {
+        try (var connection = sql2o.beginTransaction()) {
             var query = connection.createQuery("DELETE FROM candidates WHERE id = :id");
             query.addParameter("id", id);
             var affectedRows = query.executeUpdate().getResult();
+            if (affectedRows > 0) {
+                TableVersions.increment(sql2o, connection, TableVersions.CANDIDATES);
+            }
+            connection.commit();
             return affectedRows > 0;
         }
     }
 
     @Override
     public boolean updateCandidate(Candidate candidate) {
-        try (var connection = sql2o.open()) {
+        try (var connection = sql2o.beginTransaction()) {
             var sql = """
                     UPDATE candidates
                     SET name = :name, description = :description, creation_date = :creationDate,
-                        city_id = :cityId, file_id = :fileId
+                        city_id = :cityId, file_id = :fileId, version = version + 1
                     WHERE id = :id
                     """;
             var query = connection.createQuery(sql)
@@ -62,6 +110,10 @@ public class Sql2oCandidateRepository implements CandidateRepository {
                     .addParameter("fileId", candidate.getFileId())
                     .addParameter("id", candidate.getId());
             var affectedRows = query.executeUpdate().getResult();
+            if (affectedRows > 0) {
+                TableVersions.increment(sql2o, connection, TableVersions.CANDIDATES);
+            }
+            connection.commit();
             return affectedRows > 0;
         }
     }
@@ -69,10 +121,9 @@ public class Sql2oCandidateRepository implements CandidateRepository {
     @Override
     public Optional<Candidate> findByIdCandidate(int id) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM candidates WHERE id = :id");
+            var query = connection.createQuery("SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates WHERE id = :id");
             query.addParameter("id", id);
-            var candidate = query.setColumnMappings(Candidate.COLUMN_MAPPING)
-                    .executeAndFetchFirst(Candidate.class);
+            var candidate = query.executeAndFetchFirst(RowMappers.CANDIDATE);
             return Optional.ofNullable(candidate);
         }
     }
@@ -80,9 +131,82 @@ public class Sql2oCandidateRepository implements CandidateRepository {
     @Override
     public Collection<Candidate> findAllCandidate() {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM candidates");
-            return query.setColumnMappings(Candidate.COLUMN_MAPPING)
-                    .executeAndFetch(Candidate.class);
+            var query = connection.createQuery("SELECT " + RowMappers.CANDIDATE_COLUMNS + " FROM candidates");
+            return query.executeAndFetch(RowMappers.CANDIDATE);
+        }
+    }
+
+    @Override
+    public Optional<CandidateDetailsDto> findDetailsByIdCandidate(int id) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    SELECT %s FROM candidates k
+                    LEFT JOIN cities c ON c.id = k.city_id
+                    LEFT JOIN files f ON f.id = k.file_id
+                    WHERE k.id = :id
+                    """.formatted(RowMappers.CANDIDATE_DETAILS_COLUMNS);
+            var query = connection.createQuery(sql).addParameter("id", id);
+            return Optional.ofNullable(query.executeAndFetchFirst(RowMappers.CANDIDATE_DETAILS));
+        }
+    }
+
+    @Override
+    public Optional<Integer> findVersionByIdCandidate(int id) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT version FROM candidates WHERE id = :id");
+            query.addParameter("id", id);
+            return Optional.ofNullable(query.executeScalar(Integer.class));
+        }
+    }
+
+    @Override
+    public TableVersion findTableVersionCandidate() {
+        try (var connection = sql2o.open()) {
+            return TableVersions.find(connection, TableVersions.CANDIDATES);
+        }
+    }
+
+    /**
+     * Записи и количество по городам выбираются одним запросом UNION ALL: первая часть возвращает
+     * страницу кандидатов (facet = 0), вторая - количество по городам (facet = 1).
+     */
+    @Override
+    public FacetedResult<Candidate> findByFilterCandidate(CandidateFilter filter, PageCursor cursor, int limit) {
+        var facetCriteria = new Criteria()
+                .add("creation_date >= :createdFrom", "createdFrom",
+                        filter.getCreatedFrom() == null ? null : filter.getCreatedFrom().atStartOfDay())
+                .add("creation_date < :createdTo", "createdTo",
+                        filter.getCreatedTo() == null ? null : filter.getCreatedTo().plusDays(1).atStartOfDay());
+        var criteria = facetCriteria.copy().add("city_id = :cityId", "cityId", filter.getCityId());
+        if (cursor != null) {
+            criteria.add("(creation_date, id) < (:cursorDate, :cursorId)",
+                    Map.of("cursorDate", cursor.getCreationDate(), "cursorId", cursor.getId()));
+        }
+        var sql = """
+                (SELECT 0 AS facet, id, name, creation_date, city_id, 0 AS total
+                FROM candidates %s
+                ORDER BY creation_date DESC, id DESC
+                LIMIT :limit)
+                UNION ALL
+                (SELECT 1, NULL, NULL, NULL, city_id, COUNT(*)
+                FROM candidates %s
+                GROUP BY city_id)
+                """.formatted(criteria.where(), facetCriteria.where());
+        try (var connection = sql2o.open()) {
+            var query = criteria.bind(connection.createQuery(sql)).addParameter("limit", limit);
+            var candidates = new ArrayList<Candidate>();
+            var cityCounts = new HashMap<Integer, Long>();
+            for (var row : query.executeAndFetchTable().rows()) {
+                if (row.getInteger("facet") == 1) {
+                    cityCounts.put(row.getInteger("city_id"), row.getLong("total"));
+                } else {
+                    candidates.add(new Candidate(row.getInteger("id"), row.getString("name"), null,
+                            row.getObject("creation_date", LocalDateTime.class),
+                            row.getInteger("city_id") == null ? 0 : row.getInteger("city_id"), 0));
+                }
+            }
+            candidates.sort(NEWEST_FIRST);
+            return new FacetedResult<>(candidates, Criteria.byCountDescending(cityCounts), null);
         }
     }
-}
\ No newline at end of file
+}
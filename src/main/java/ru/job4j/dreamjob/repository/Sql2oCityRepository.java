@@ -1,11 +1,13 @@
 package ru.job4j.dreamjob.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.model.City;
 
 import java.util.Collection;
 
+@Timed("repository.calls")
 @Repository
 public class Sql2oCityRepository implements CityRepository {
 
@@ -18,8 +20,8 @@ public class Sql2oCityRepository implements CityRepository {
     @Override
     public Collection<City> findAll() {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM cities");
-            return query.executeAndFetch(City.class);
+            var query = connection.createQuery("SELECT " + RowMappers.CITY_COLUMNS + " FROM cities");
+            return query.executeAndFetch(RowMappers.CITY);
         }
     }
 }
@@ -1,11 +1,13 @@
 package ru.job4j.dreamjob.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.model.File;
 
 import java.util.Optional;
 
+@Timed("repository.calls")
 @Repository
 public class Sql2oFileRepository implements FileRepository {
 
@@ -18,24 +20,94 @@ public class Sql2oFileRepository implements FileRepository {
     @Override
     public File save(File file) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("INSERT INTO files (name, path) VALUES (:name, :path)", true)
+            var sql = """
+                    INSERT INTO files (name, path, size, checksum)
+                    VALUES (:name, :path, :size, :checksum)
+                    """;
+            var query = connection.createQuery(sql, true)
                     .addParameter("name", file.getName())
-                    .addParameter("path", file.getPath());
+                    .addParameter("path", file.getPath())
+                    .addParameter("size", file.getSize())
+                    .addParameter("checksum", file.getChecksum());
             int generatedId = query.executeUpdate().getKey(Integer.class);
             file.setId(generatedId);
             return file;
         }
     }
 
+    @Override
+    public boolean saveIfAbsent(File file) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    INSERT INTO files (name, path, size, checksum)
+                    VALUES (:name, :path, :size, :checksum)
+                    ON CONFLICT DO NOTHING
+                    """;
+            var query = connection.createQuery(sql, true)
+                    .addParameter("name", file.getName())
+                    .addParameter("path", file.getPath())
+                    .addParameter("size", file.getSize())
+                    .addParameter("checksum", file.getChecksum());
+            var result = query.executeUpdate();
+            if (result.getResult() == 0) {
+                return false;
+            }
+            file.setId(result.getKey(Integer.class));
+            return true;
+        }
+    }
+
     @Override
     public Optional<File> findById(int id) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM files WHERE id = :id");
-            var file = query.addParameter("id", id).executeAndFetchFirst(File.class);
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE id = :id");
+            var file = query.addParameter("id", id).executeAndFetchFirst(RowMappers.FILE);
+            return Optional.ofNullable(file);
+        }
+    }
+
+    @Override
+    public Optional<File> findByPath(String path) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE path = :path");
+            var file = query.addParameter("path", path).executeAndFetchFirst(RowMappers.FILE);
             return Optional.ofNullable(file);
         }
     }
 
+    @Override
+    public Optional<File> findByPathForUpdate(String path) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT " + RowMappers.FILE_COLUMNS + " FROM files WHERE path = :path FOR UPDATE");
+            var file = query.addParameter("path", path).executeAndFetchFirst(RowMappers.FILE);
+            return Optional.ofNullable(file);
+        }
+    }
+
+    @Override
+    public boolean addReference(int id) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("UPDATE files SET ref_count = ref_count + 1 WHERE id = :id AND ref_count > 0");
+            var affectedRows = query.addParameter("id", id).executeUpdate().getResult();
+            return affectedRows > 0;
+        }
+    }
+
+    @Override
+    public boolean removeReference(int id) {
+        try (var connection = sql2o.beginTransaction()) {
+            connection.createQuery("UPDATE files SET ref_count = ref_count - 1 WHERE id = :id")
+                    .addParameter("id", id)
+                    .executeUpdate();
+            var affectedRows = connection.createQuery("DELETE FROM files WHERE id = :id AND ref_count <= 0")
+                    .addParameter("id", id)
+                    .executeUpdate()
+                    .getResult();
+            connection.commit();
+            return affectedRows > 0;
+        }
+    }
+
     @Override
     public void deleteById(int id) {
         try (var connection = sql2o.open()) {
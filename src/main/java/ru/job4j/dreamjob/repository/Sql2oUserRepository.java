@@ -1,5 +1,6 @@
 package ru.job4j.dreamjob.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
@@ -8,6 +9,7 @@ import ru.job4j.dreamjob.model.User;
 
 import java.util.Optional;
 
+@Timed("repository.calls")
 @Repository
 public class Sql2oUserRepository implements UserRepository {
 
@@ -40,16 +42,25 @@ public class Sql2oUserRepository implements UserRepository {
     }
 
     @Override
-    public Optional<User> findByEmailAndPassword(String email, String password) {
+    public Optional<User> findByEmail(String email) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM users WHERE email = :email AND password = :password");
+            var query = connection.createQuery("SELECT " + RowMappers.USER_COLUMNS + " FROM users WHERE email = :email");
             query.addParameter("email", email);
-            query.addParameter("password", password);
-            var user = query.executeAndFetchFirst(User.class);
+            var user = query.executeAndFetchFirst(RowMappers.USER);
             return Optional.ofNullable(user);
         } catch (Exception e) {
-            LOGGER.error("Failed to find user by email: {} and password", email, e);
+            LOGGER.error("Failed to find user by email: {}", email, e);
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean updatePassword(int id, String password) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("UPDATE users SET password = :password WHERE id = :id");
+            query.addParameter("password", password);
+            query.addParameter("id", id);
+            return query.executeUpdate().getResult() > 0;
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package ru.job4j.dreamjob.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Repository;
 import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.Vacancy;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+@Timed("repository.calls")
 @Repository
 public class Sql2oVacancyRepository implements VacancyRepository {
 
+    private static final Comparator<Vacancy> NEWEST_FIRST = Comparator.comparing(Vacancy::getCreationDate)
+            .thenComparingInt(Vacancy::getId)
+            .reversed();
+
     private final Sql2o sql2o;
 
     public Sql2oVacancyRepository(Sql2o sql2o) {
@@ -18,7 +36,7 @@ public class Sql2oVacancyRepository implements VacancyRepository {
 
     @Override
     public Vacancy save(Vacancy vacancy) {
-        try (var connection = sql2o.open()) {
+        try (var connection = sql2o.beginTransaction()) {
             var sql = """
                     INSERT INTO vacancies(title, description, creation_date, visible, city_id, file_id)
                     VALUES (:title, :description, :creationDate, :visible, :cityId, :fileId)
@@ -32,26 +50,57 @@ public class Sql2oVacancyRepository implements VacancyRepository {
                     .addParameter("fileId", vacancy.getFileId());
             int generatedId = query.executeUpdate().getKey(Integer.class);
             vacancy.setId(generatedId);
+            TableVersions.increment(sql2o, connection, TableVersions.VACANCIES);
+            connection.commit();
             return vacancy;
         }
     }
 
+    @Override
+    public void saveAll(List<Vacancy> vacancies) {
+        try (var connection = sql2o.beginTransaction()) {
+            var sql = """
+                    INSERT INTO vacancies(title, description, creation_date, visible, city_id, file_id)
+                    VALUES (:title, :description, :creationDate, :visible, :cityId, :fileId)
+                    """;
+            var query = connection.createQuery(sql, true);
+            for (var vacancy : vacancies) {
+                query.addParameter("title", vacancy.getTitle())
+                        .addParameter("description", vacancy.getDescription())
+                        .addParameter("creationDate", vacancy.getCreationDate())
+                        .addParameter("visible", vacancy.getVisible())
+                        .addParameter("cityId", vacancy.getCityId())
+                        .addParameter("fileId", vacancy.getFileId() == 0 ? null : vacancy.getFileId())
+                        .addToBatch();
+            }
+            var generatedIds = query.executeBatch().getKeys(Integer.class);
+            for (var i = 0; i < generatedIds.size(); i++) {
+                vacancies.get(i).setId(generatedIds.get(i));
+            }
+            TableVersions.increment(sql2o, connection, TableVersions.VACANCIES);
+            connection.commit();
+        }
+    }
+
     @Override
     public void deleteById(int id) {
-        try (var connection = sql2o.open()) {
+        try (var connection = sql2o.beginTransaction()) {
             var query = connection.createQuery("DELETE FROM vacancies WHERE id = :id");
             query.addParameter("id", id);
-            query.executeUpdate();
+            if (query.executeUpdate().getResult() > 0) {
+                TableVersions.increment(sql2o, connection, TableVersions.VACANCIES);
+            }
+            connection.commit();
         }
     }
 
     @Override
     public boolean update(Vacancy vacancy) {
-        try (var connection = sql2o.open()) {
+        try (var connection = sql2o.beginTransaction()) {
             var sql = """
                     UPDATE vacancies
                     SET title = :title, description = :description, creation_date = :creationDate,
-                        visible = :visible, city_id = :cityId, file_id = :fileId
+                        visible = :visible, city_id = :cityId, file_id = :fileId, version = version + 1
                     WHERE id = :id
                     """;
             var query = connection.createQuery(sql)
@@ -63,6 +112,10 @@ public class Sql2oVacancyRepository implements VacancyRepository {
                     .addParameter("fileId", vacancy.getFileId())
                     .addParameter("id", vacancy.getId());
             var affectedRows = query.executeUpdate().getResult();
+            if (affectedRows > 0) {
+                TableVersions.increment(sql2o, connection, TableVersions.VACANCIES);
+            }
+            connection.commit();
             return affectedRows > 0;
         }
     }
@@ -70,9 +123,9 @@ public class Sql2oVacancyRepository implements VacancyRepository {
     @Override
     public Optional<Vacancy> findById(int id) {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM vacancies WHERE id = :id");
+            var query = connection.createQuery("SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies WHERE id = :id");
             query.addParameter("id", id);
-            var vacancy = query.setColumnMappings(Vacancy.COLUMN_MAPPING).executeAndFetchFirst(Vacancy.class);
+            var vacancy = query.executeAndFetchFirst(RowMappers.VACANCY);
             return Optional.ofNullable(vacancy);
         }
     }
@@ -80,8 +133,157 @@ public class Sql2oVacancyRepository implements VacancyRepository {
     @Override
     public Collection<Vacancy> findAll() {
         try (var connection = sql2o.open()) {
-            var query = connection.createQuery("SELECT * FROM vacancies");
-            return query.setColumnMappings(Vacancy.COLUMN_MAPPING).executeAndFetch(Vacancy.class);
+            var query = connection.createQuery("SELECT " + RowMappers.VACANCY_COLUMNS + " FROM vacancies");
+            return query.executeAndFetch(RowMappers.VACANCY);
+        }
+    }
+
+    @Override
+    public Optional<VacancyDetailsDto> findDetailsById(int id) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    SELECT %s FROM vacancies v
+                    LEFT JOIN cities c ON c.id = v.city_id
+                    LEFT JOIN files f ON f.id = v.file_id
+                    WHERE v.id = :id
+                    """.formatted(RowMappers.VACANCY_DETAILS_COLUMNS);
+            var query = connection.createQuery(sql).addParameter("id", id);
+            return Optional.ofNullable(query.executeAndFetchFirst(RowMappers.VACANCY_DETAILS));
+        }
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(int id) {
+        try (var connection = sql2o.open()) {
+            var query = connection.createQuery("SELECT version FROM vacancies WHERE id = :id");
+            query.addParameter("id", id);
+            return Optional.ofNullable(query.executeScalar(Integer.class));
+        }
+    }
+
+    @Override
+    public TableVersion findTableVersion() {
+        try (var connection = sql2o.open()) {
+            return TableVersions.find(connection, TableVersions.VACANCIES);
+        }
+    }
+
+    @Override
+    public List<Vacancy> findPageAfter(PageCursor cursor, int limit) {
+        if (cursor == null) {
+            return findFirstPage(limit);
+        }
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    SELECT %s FROM vacancies
+                    WHERE (creation_date, id) < (:creationDate, :id)
+                    ORDER BY creation_date DESC, id DESC
+                    LIMIT :limit
+                    """.formatted(RowMappers.VACANCY_ITEM_COLUMNS);
+            var query = connection.createQuery(sql)
+                    .addParameter("creationDate", cursor.getCreationDate())
+                    .addParameter("id", cursor.getId())
+                    .addParameter("limit", limit);
+            return query.executeAndFetch(RowMappers.VACANCY_ITEM);
+        }
+    }
+
+    private List<Vacancy> findFirstPage(int limit) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    SELECT %s FROM vacancies
+                    ORDER BY creation_date DESC, id DESC
+                    LIMIT :limit
+                    """.formatted(RowMappers.VACANCY_ITEM_COLUMNS);
+            var query = connection.createQuery(sql).addParameter("limit", limit);
+            return query.executeAndFetch(RowMappers.VACANCY_ITEM);
+        }
+    }
+
+    @Override
+    public List<Vacancy> findPageBefore(PageCursor cursor, int limit) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    SELECT %s FROM vacancies
+                    WHERE (creation_date, id) > (:creationDate, :id)
+                    ORDER BY creation_date, id
+                    LIMIT :limit
+                    """.formatted(RowMappers.VACANCY_ITEM_COLUMNS);
+            var query = connection.createQuery(sql)
+                    .addParameter("creationDate", cursor.getCreationDate())
+                    .addParameter("id", cursor.getId())
+                    .addParameter("limit", limit);
+            var vacancies = query.executeAndFetch(RowMappers.VACANCY_ITEM);
+            Collections.reverse(vacancies);
+            return vacancies;
+        }
+    }
+
+    /**
+     * Поиск без индекса: запрос ищется как подстрока, что требует полного просмотра таблицы.
+     * Используется как запасной вариант, в приложении поиск обслуживает {@link IndexedVacancyRepository}.
+     */
+    @Override
+    public List<Vacancy> search(String query, int offset, int limit) {
+        try (var connection = sql2o.open()) {
+            var sql = """
+                    SELECT %s FROM vacancies
+                    WHERE LOWER(title) LIKE :pattern OR LOWER(description) LIKE :pattern
+                    ORDER BY CASE WHEN LOWER(title) LIKE :pattern THEN 0 ELSE 1 END, creation_date DESC, id DESC
+                    LIMIT :limit OFFSET :offset
+                    """.formatted(RowMappers.VACANCY_ITEM_COLUMNS);
+            var pattern = "%" + query.toLowerCase()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            var sqlQuery = connection.createQuery(sql)
+                    .addParameter("pattern", pattern)
+                    .addParameter("limit", limit)
+                    .addParameter("offset", offset);
+            return sqlQuery.executeAndFetch(RowMappers.VACANCY_ITEM);
+        }
+    }
+
+    /**
+     * Записи и количество по городам выбираются одним запросом UNION ALL: первая часть возвращает
+     * страницу вакансий (facet = 0), вторая - количество по городам (facet = 1).
+     */
+    @Override
+    public FacetedResult<Vacancy> findByFilter(VacancyFilter filter, PageCursor cursor, int limit) {
+        var facetCriteria = new Criteria()
+                .add("visible = :visible", "visible", filter.getVisible())
+                .add("creation_date >= :createdFrom", "createdFrom",
+                        filter.getCreatedFrom() == null ? null : filter.getCreatedFrom().atStartOfDay())
+                .add("creation_date < :createdTo", "createdTo",
+                        filter.getCreatedTo() == null ? null : filter.getCreatedTo().plusDays(1).atStartOfDay());
+        var criteria = facetCriteria.copy().add("city_id = :cityId", "cityId", filter.getCityId());
+        if (cursor != null) {
+            criteria.add("(creation_date, id) < (:cursorDate, :cursorId)",
+                    Map.of("cursorDate", cursor.getCreationDate(), "cursorId", cursor.getId()));
+        }
+        var sql = """
+                (SELECT 0 AS facet, id, title, creation_date, visible, city_id, 0 AS total
+                FROM vacancies %s
+                ORDER BY creation_date DESC, id DESC
+                LIMIT :limit)
+                UNION ALL
+                (SELECT 1, NULL, NULL, NULL, NULL, city_id, COUNT(*)
+                FROM vacancies %s
+                GROUP BY city_id)
+                """.formatted(criteria.where(), facetCriteria.where());
+        try (var connection = sql2o.open()) {
+            var query = criteria.bind(connection.createQuery(sql)).addParameter("limit", limit);
+            var vacancies = new ArrayList<Vacancy>();
+            var cityCounts = new HashMap<Integer, Long>();
+            for (var row : query.executeAndFetchTable().rows()) {
+                if (row.getInteger("facet") == 1) {
+                    cityCounts.put(row.getInteger("city_id"), row.getLong("total"));
+                } else {
+                    vacancies.add(new Vacancy(row.getInteger("id"), row.getString("title"), null,
+                            row.getObject("creation_date", LocalDateTime.class), row.getBoolean("visible"),
+                            row.getInteger("city_id") == null ? 0 : row.getInteger("city_id"), 0));
+                }
+            }
+            vacancies.sort(NEWEST_FIRST);
+            return new FacetedResult<>(vacancies, Criteria.byCountDescending(cityCounts), null);
         }
     }
-}
\ No newline at end of file
+}
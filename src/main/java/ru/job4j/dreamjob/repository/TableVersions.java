@@ -0,0 +1,53 @@
+package ru.job4j.dreamjob.repository;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.sql2o.Connection;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.dto.TableVersion;
+
+/**
+ * Счетчики изменений таблиц (таблица table_versions, по строке на таблицу).
+ * Счетчик увеличивается в той же транзакции, что и изменение, поэтому новая версия становится видна
+ * вместе с ним, а откат возвращает прежнюю. В транзакции Spring счетчик увеличивается перед фиксацией,
+ * последним запросом: строку счетчика все изменения таблицы блокируют до конца транзакции,
+ * и если бы она блокировалась раньше строк файлов (findByPathForUpdate), транзакции сохранения
+ * и удаления вакансий с одним файлом блокировали бы друг друга взаимно.
+ */
+final class TableVersions {
+
+    static final String VACANCIES = "vacancies";
+
+    static final String CANDIDATES = "candidates";
+
+    private TableVersions() {
+    }
+
+    /**
+     * Увеличивает счетчик таблицы перед фиксацией транзакции Spring,
+     * а вне ее - сразу, на соединении изменяющего запроса.
+     */
+    static void increment(Sql2o sql2o, Connection connection, String table) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(connection, table);
+            return;
+        }
+        TransactionCallbacks.beforeCommit(() -> {
+            try (var current = sql2o.open()) {
+                increment(current, table);
+            }
+        });
+    }
+
+    private static void increment(Connection connection, String table) {
+        connection.createQuery("UPDATE table_versions SET version = version + 1 WHERE table_name = :table")
+                .addParameter("table", table)
+                .executeUpdate();
+    }
+
+    static TableVersion find(Connection connection, String table) {
+        var version = connection.createQuery("SELECT version FROM table_versions WHERE table_name = :table")
+                .addParameter("table", table)
+                .executeScalar(Long.class);
+        return new TableVersion(version == null ? 0 : version);
+    }
+}
@@ -8,5 +8,10 @@ public interface UserRepository {
 
     Optional<User> save(User user);
 
-    Optional<User> findByEmailAndPassword(String email, String password);
-}
\ No newline at end of file
+    /**
+     * Ищет пользователя только по почте: пароль проверяется в приложении по сохраненному хэшу.
+     */
+    Optional<User> findByEmail(String email);
+
+    boolean updatePassword(int id, String password);
+}
@@ -1,14 +1,28 @@
 package ru.job4j.dreamjob.repository;
 
+import ru.job4j.dreamjob.dto.FacetedResult;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface VacancyRepository {
 
     Vacancy save(Vacancy vacancy);
 
+    /**
+     * Сохраняет вакансии одним пакетом (JDBC batch) в одной транзакции.
+     * Если хотя бы одна строка не сохранилась, транзакция откатывается целиком и бросается исключение.
+     * Сохраненным вакансиям присваиваются сгенерированные идентификаторы.
+     * @param vacancies вакансии для сохранения
+     */
+    void saveAll(List<Vacancy> vacancies);
+
     void deleteById(int id);
 
     boolean update(Vacancy vacancy);
@@ -17,4 +31,53 @@ public interface VacancyRepository {
 
     Collection<Vacancy> findAll();
 
-}
\ No newline at end of file
+    /**
+     * Возвращает данные страницы просмотра вакансии вместе с названием города и сведениями о файле.
+     */
+    Optional<VacancyDetailsDto> findDetailsById(int id);
+
+    /**
+     * Возвращает только версию вакансии, не читая остальные поля.
+     */
+    Optional<Integer> findVersionById(int id);
+
+    /**
+     * Возвращает версию таблицы вакансий: она меняется при любом добавлении, изменении или удалении.
+     */
+    TableVersion findTableVersion();
+
+    /**
+     * Возвращает вакансии, идущие после курсора в порядке (creation_date, id) по убыванию.
+     * Заполняются только поля, отображаемые в списке: id, title, creationDate, visible.
+     * @param cursor ключ последней записи предыдущей страницы или null для первой страницы
+     * @param limit максимальное количество записей
+     */
+    List<Vacancy> findPageAfter(PageCursor cursor, int limit);
+
+    /**
+     * Возвращает вакансии, идущие перед курсором, в том же порядке, что и {@link #findPageAfter}.
+     * @param cursor ключ первой записи следующей страницы
+     * @param limit максимальное количество записей
+     */
+    List<Vacancy> findPageBefore(PageCursor cursor, int limit);
+
+    /**
+     * Ищет вакансии по словам в названии и описании. Результаты упорядочены по релевантности,
+     * совпадения в названии важнее совпадений в описании.
+     * Заполняются только поля, отображаемые в списке: id, title, creationDate, visible.
+     * @param query поисковый запрос
+     * @param offset сколько первых результатов пропустить
+     * @param limit максимальное количество записей
+     */
+    List<Vacancy> search(String query, int offset, int limit);
+
+    /**
+     * Отбирает вакансии по условиям (сначала новые) и в том же запросе к БД считает,
+     * сколько вакансий подходит под условия в каждом городе (без учета условия на город).
+     * Заполняются поля списка: id, title, creationDate, visible, cityId.
+     * @param filter условия отбора
+     * @param cursor ключ последней записи предыдущей страницы или null для первой страницы
+     * @param limit максимальное количество записей
+     */
+    FacetedResult<Vacancy> findByFilter(VacancyFilter filter, PageCursor cursor, int limit);
+}
@@ -1,10 +1,15 @@
 package ru.job4j.dreamjob.service;
 
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.TableVersion;
 import ru.job4j.dreamjob.model.Candidate;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Function;
 
 public interface CandidateService {
 
@@ -17,4 +22,12 @@ public interface CandidateService {
     Optional<Candidate> findByIdCandidate(int id);
 
     Collection<Candidate> findAllCandidate();
+
+    Optional<CandidateDetailsDto> findDetailsByIdCandidate(int id);
+
+    Optional<Integer> findVersionByIdCandidate(int id);
+
+    <T> T readWithTableVersionCandidate(Function<TableVersion, T> reader);
+
+    FacetedResult<Candidate> filterCandidate(CandidateFilter filter, String after, int size);
 }
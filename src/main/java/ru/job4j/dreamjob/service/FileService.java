@@ -1,6 +1,7 @@
 package ru.job4j.dreamjob.service;
 
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
 import ru.job4j.dreamjob.model.File;
 
 import java.util.Optional;
@@ -11,5 +12,7 @@ public interface FileService {
 
     Optional<FileDto> getFileById(int id);
 
+    Optional<FileResourceDto> getFileResourceById(int id);
+
     void deleteById(int id);
 }
\ No newline at end of file
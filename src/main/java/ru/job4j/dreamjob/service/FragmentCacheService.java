@@ -0,0 +1,16 @@
+package ru.job4j.dreamjob.service;
+
+import java.util.Optional;
+
+public interface FragmentCacheService {
+
+    String VACANCIES = "vacancies";
+
+    String CANDIDATES = "candidates";
+
+    Optional<String> findFragment(String region, String key);
+
+    void putFragment(String region, String key, String fragment);
+
+    void invalidate(String region);
+}
@@ -0,0 +1,15 @@
+package ru.job4j.dreamjob.service;
+
+import ru.job4j.dreamjob.dto.FileResourceDto;
+
+import java.util.Optional;
+
+public interface ImageVariantService {
+
+    Optional<FileResourceDto> getVariant(int fileId, int width);
+
+    /**
+     * Удаляет все уменьшенные копии файла, хранящегося по пути path.
+     */
+    void deleteVariants(String path);
+}
@@ -0,0 +1,40 @@
+package ru.job4j.dreamjob.service;
+
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+/**
+ * Форматы входных данных пакетного импорта. Каждая запись занимает одну строку.
+ */
+public enum ImportFormat {
+
+    /**
+     * JSON-объект на каждой строке (application/x-ndjson).
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON),
+
+    /**
+     * CSV с заголовком в первой строке, разделитель - запятая, значения могут быть в двойных кавычках (text/csv).
+     */
+    CSV(new MediaType("text", "csv"));
+
+    private final MediaType mediaType;
+
+    ImportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static Optional<ImportFormat> of(MediaType contentType) {
+        for (var format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,13 @@
+package ru.job4j.dreamjob.service;
+
+import ru.job4j.dreamjob.dto.ImportReport;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+public interface ImportService {
+
+    ImportReport importVacancies(InputStream input, ImportFormat format, Charset charset);
+
+    ImportReport importCandidates(InputStream input, ImportFormat format, Charset charset);
+}
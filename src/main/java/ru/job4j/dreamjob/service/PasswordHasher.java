@@ -0,0 +1,16 @@
+package ru.job4j.dreamjob.service;
+
+public interface PasswordHasher {
+
+    /**
+     * Вычисляет хэш пароля со случайной солью и текущей стоимостью. Соль и стоимость хранятся в самом хэше.
+     */
+    String hash(String password);
+
+    boolean matches(String password, String hash);
+
+    /**
+     * Хэш получен с другой стоимостью (или пароль хранится открытым текстом) и его нужно пересчитать.
+     */
+    boolean needsRehash(String hash);
+}
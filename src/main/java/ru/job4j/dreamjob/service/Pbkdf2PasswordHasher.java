@@ -0,0 +1,103 @@
+package ru.job4j.dreamjob.service;
+
+import net.jcip.annotations.ThreadSafe;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Хэширование паролей PBKDF2 с HMAC-SHA256 средствами JDK.
+ * Хэш хранится строкой pbkdf2-sha256$итерации$соль$хэш (соль и хэш в Base64),
+ * поэтому хэши с разной стоимостью проверяются одинаково, а устаревшие видны по числу итераций.
+ * Строка без префикса считается паролем, сохраненным до перехода на хэши, открытым текстом:
+ * такой пароль проверяется напрямую и пересчитывается при первом входе.
+ * Строка с префиксом, но в неверном формате (поврежденная запись), не совпадает ни с одним паролем.
+ */
+@ThreadSafe
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final String PREFIX = "pbkdf2-sha256";
+
+    private static final String SEPARATOR = "$";
+
+    private static final int SALT_LENGTH = 16;
+
+    private static final int HASH_LENGTH = 256;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final int iterations;
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Число итераций должно быть положительным: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String hash(String password) {
+        var salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        var encoder = Base64.getEncoder();
+        return String.join(SEPARATOR, PREFIX, String.valueOf(iterations),
+                encoder.encodeToString(salt), encoder.encodeToString(derive(password, salt, iterations)));
+    }
+
+    @Override
+    public boolean matches(String password, String hash) {
+        if (!hash.startsWith(PREFIX + SEPARATOR)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), hash.getBytes(StandardCharsets.UTF_8));
+        }
+        var parts = hash.split("\\$", -1);
+        var hashIterations = iterationsOf(parts);
+        if (hashIterations < 1) {
+            return false;
+        }
+        var decoder = Base64.getDecoder();
+        var expected = decoder.decode(parts[3]);
+        var actual = derive(password, decoder.decode(parts[2]), hashIterations);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    @Override
+    public boolean needsRehash(String hash) {
+        return iterationsOf(hash.split("\\$", -1)) != iterations;
+    }
+
+    /**
+     * Число итераций из хэша или -1, если строка не в формате хэша (в том числе поврежденная запись):
+     * число итераций должно быть положительным, соль и хэш - непустыми строками Base64.
+     */
+    private static int iterationsOf(String[] parts) {
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return -1;
+        }
+        try {
+            var decoder = Base64.getDecoder();
+            var result = Integer.parseInt(parts[1]);
+            var valid = result > 0 && decoder.decode(parts[2]).length > 0 && decoder.decode(parts[3]).length > 0;
+            return valid ? result : -1;
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private byte[] derive(String password, byte[] salt, int iterations) {
+        var spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм " + ALGORITHM + " недоступен", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -2,29 +2,46 @@ package ru.job4j.dreamjob.service;
 
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.repository.CandidateRepository;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Function;
 
+/**
+ * Операции с кандидатами. Чтение, как и у вакансий, идет с реплики, изменения - в основную БД.
+ */
 @ThreadSafe
 @Service
+@Transactional(readOnly = true)
 public class SimpleCandidateService implements CandidateService {
 
     private final CandidateRepository candidateRepository;
     private final FileService fileService;
+    private final FragmentCacheService fragmentCacheService;
 
-    public SimpleCandidateService(CandidateRepository sql2oCandidateRepository, FileService fileService) {
-        this.candidateRepository = sql2oCandidateRepository;
+    public SimpleCandidateService(CandidateRepository cachingCandidateRepository, FileService fileService,
+                                  FragmentCacheService fragmentCacheService) {
+        this.candidateRepository = cachingCandidateRepository;
         this.fileService = fileService;
+        this.fragmentCacheService = fragmentCacheService;
     }
 
     @Override
+    @Transactional
     public Candidate saveCandidate(Candidate candidate, FileDto image) {
         saveNewFile(candidate, image);
-        return candidateRepository.saveCandidate(candidate);
+        var saved = candidateRepository.saveCandidate(candidate);
+        fragmentCacheService.invalidate(FragmentCacheService.CANDIDATES);
+        return saved;
     }
 
     private void saveNewFile(Candidate candidate, FileDto image) {
@@ -33,10 +50,12 @@ public class SimpleCandidateService implements CandidateService {
     }
 
     @Override
+    @Transactional
     public boolean deleteByIdCandidate(int id) {
         var candidateOptional = findByIdCandidate(id);
         if (candidateOptional.isPresent()) {
             candidateRepository.deleteByIdCandidate(id);
+            fragmentCacheService.invalidate(FragmentCacheService.CANDIDATES);
             fileService.deleteById(candidateOptional.get().getFileId());
             return true;
         }
@@ -44,15 +63,19 @@ public class SimpleCandidateService implements CandidateService {
     }
 
     @Override
+    @Transactional
     public boolean updateCandidate(Candidate candidate, FileDto image) {
-        var isNewFileEmpty = image.getContent().length == 0;
+        var isNewFileEmpty = image.isEmpty();
         if (isNewFileEmpty) {
-            return candidateRepository.updateCandidate(candidate);
+            var isUpdated = candidateRepository.updateCandidate(candidate);
+            fragmentCacheService.invalidate(FragmentCacheService.CANDIDATES);
+            return isUpdated;
         }
 
         var oldFileId = candidate.getFileId();
         saveNewFile(candidate, image);
         var isUpdated = candidateRepository.updateCandidate(candidate);
+        fragmentCacheService.invalidate(FragmentCacheService.CANDIDATES);
         fileService.deleteById(oldFileId);
         return isUpdated;
     }
@@ -66,4 +89,43 @@ public class SimpleCandidateService implements CandidateService {
     public Collection<Candidate> findAllCandidate() {
         return candidateRepository.findAllCandidate();
     }
-}
\ No newline at end of file
+
+    @Override
+    public Optional<CandidateDetailsDto> findDetailsByIdCandidate(int id) {
+        return candidateRepository.findDetailsByIdCandidate(id);
+    }
+
+    @Override
+    public Optional<Integer> findVersionByIdCandidate(int id) {
+        return candidateRepository.findVersionByIdCandidate(id);
+    }
+
+    /**
+     * Читает версию таблицы кандидатов и выполняет чтение списка в одной транзакции только для чтения,
+     * как {@link SimpleVacancyService#readWithTableVersion}.
+     * @param reader чтение по версии таблицы
+     */
+    @Override
+    public <T> T readWithTableVersionCandidate(Function<TableVersion, T> reader) {
+        return reader.apply(candidateRepository.findTableVersionCandidate());
+    }
+
+    /**
+     * Возвращает страницу кандидатов, отобранных по условиям, вместе с количеством подходящих кандидатов по городам.
+     * @param filter условия отбора
+     * @param after курсор, после которого начинается страница
+     * @param size размер страницы
+     */
+    @Override
+    public FacetedResult<Candidate> filterCandidate(CandidateFilter filter, String after, int size) {
+        var result = candidateRepository.findByFilterCandidate(filter, PageCursor.decode(after).orElse(null), size + 1);
+        var candidates = result.getItems();
+        var hasNext = candidates.size() > size;
+        var items = hasNext ? candidates.subList(0, size) : candidates;
+        return new FacetedResult<>(items, result.getCityCounts(), hasNext ? cursorOf(items.get(items.size() - 1)) : null);
+    }
+
+    private String cursorOf(Candidate candidate) {
+        return new PageCursor(candidate.getCreationDate(), candidate.getId()).encode();
+    }
+}
@@ -1,24 +1,99 @@
 package ru.job4j.dreamjob.service;
 
 import net.jcip.annotations.ThreadSafe;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.repository.CityRepository;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Сервис справочника городов. Справочник почти не меняется, поэтому он читается из БД один раз
+ * и хранится в памяти как неизменяемый снимок: список в порядке БД и индекс по id.
+ * Приложение города не изменяет (справочник заполняется миграциями), поэтому сбрасывать снимок
+ * не нужно: изменения в БД подхватываются при перечитывании по расписанию (city.cache.refresh-interval).
+ * Читатели не берут блокировок: они видят либо старый, либо новый снимок целиком.
+ */
 @ThreadSafe
 @Service
 public class SimpleCityService implements CityService {
 
     private final CityRepository cityRepository;
 
+    /**
+     * Блокировка, а не synchronized: загрузка ходит в БД, и виртуальный поток, ждущий ее
+     * внутри synchronized, занимал бы (pinned) поток-носитель на все время запроса.
+     */
+    private final Lock loadLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
     public SimpleCityService(CityRepository sql2oCityRepository) {
         this.cityRepository = sql2oCityRepository;
     }
 
     @Override
     public Collection<City> findAll() {
-        return cityRepository.findAll();
+        return snapshot().cities;
+    }
+
+    @Override
+    public Optional<City> findById(int id) {
+        return Optional.ofNullable(snapshot().byId.get(id));
+    }
+
+    /**
+     * Перечитывает справочник по расписанию. Если справочник еще ни разу не запрашивался,
+     * загружать его заранее не нужно.
+     */
+    @Scheduled(initialDelayString = "${city.cache.refresh-interval:PT10M}",
+            fixedDelayString = "${city.cache.refresh-interval:PT10M}")
+    public void refresh() {
+        if (snapshot != null) {
+            snapshot = load();
+        }
+    }
+
+    private Snapshot snapshot() {
+        var current = snapshot;
+        if (current == null) {
+            loadLock.lock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        var cities = List.copyOf(cityRepository.findAll());
+        var byId = cities.stream().collect(Collectors.toUnmodifiableMap(City::getId, Function.identity()));
+        return new Snapshot(cities, byId);
+    }
+
+    private static final class Snapshot {
+
+        private final List<City> cities;
+
+        private final Map<Integer, City> byId;
+
+        private Snapshot(List<City> cities, Map<Integer, City> byId) {
+            this.cities = cities;
+            this.byId = byId;
+        }
     }
 }
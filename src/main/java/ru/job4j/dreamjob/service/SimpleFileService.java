@@ -1,14 +1,29 @@
 package ru.job4j.dreamjob.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.stereotype.Service;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.FileResourceDto;
 import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.repository.FileRepository;
+import ru.job4j.dreamjob.repository.TransactionCallbacks;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,23 +34,72 @@ import java.util.UUID;
 @Service
 public class SimpleFileService implements FileService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleFileService.class);
+
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
     private final FileRepository fileRepository;
 
+    private final ImageVariantService imageVariantService;
+
     private final String storageDirectory;
 
+    private final boolean contentAddressed;
+
+    private final Timer writeTimer;
+
+    private final Timer readTimer;
+
+    private final DistributionSummary writtenBytes;
+
+    private final DistributionSummary readBytes;
+
+    private final DistributionSummary streamedBytes;
+
     /**
      * Конструктор сервиса файлов.
      * @param sql2oFileRepository репозиторий для работы с файлами в БД
+     * @param imageVariantService уменьшенные копии изображений: удаляются вместе с файлом
      * @param storageDirectory путь к директории для хранения файлов (берется из application.properties)
+     * @param contentAddressed хранить файлы по хэшу содержимого: одинаковые файлы сохраняются на диске один раз
+     * @param registry реестр метрик: длительность и объем записи и чтения файлов
      */
     public SimpleFileService(FileRepository sql2oFileRepository,
-                             @Value("${file.directory}") String storageDirectory) {
+                             ImageVariantService imageVariantService,
+                             @Value("${file.directory}") String storageDirectory,
+                             @Value("${file.storage.content-addressed:false}") boolean contentAddressed,
+                             MeterRegistry registry) {
         this.fileRepository = sql2oFileRepository;
+        this.imageVariantService = imageVariantService;
         this.storageDirectory = storageDirectory;
+        this.contentAddressed = contentAddressed;
+        this.writeTimer = durationTimer("write", registry);
+        this.readTimer = durationTimer("read", registry);
+        this.writtenBytes = bytesSummary("write", registry);
+        this.readBytes = bytesSummary("read", registry);
+        this.streamedBytes = bytesSummary("stream", registry);
         // Создаем директорию для хранения файлов при запуске приложения
         createStorageDirectory(storageDirectory);
     }
 
+    private static Timer durationTimer(String operation, MeterRegistry registry) {
+        return Timer.builder("file.storage.duration")
+                .description("Длительность записи и чтения файлов")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    /**
+     * Объем файлов: stream - файлы, отданные клиенту потоком через {@link #getFileResourceById(int)}.
+     */
+    private static DistributionSummary bytesSummary(String operation, MeterRegistry registry) {
+        return DistributionSummary.builder("file.storage.bytes")
+                .description("Объем записанных и прочитанных файлов")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
     /**
      * Создает директорию для хранения файлов, если она не существует.
      * @param path путь к директории
@@ -50,17 +114,82 @@ public class SimpleFileService implements FileService {
 
     /**
      * Сохраняет файл: записывает содержимое в файловую систему и метаинформацию в БД.
+     * Содержимое читается потоком, поэтому расход памяти не зависит от размера файла.
+     * В режиме хранения по содержимому файл с уже известным SHA-256 не записывается повторно:
+     * возвращается существующая запись, а ее счетчик ссылок увеличивается.
      * @param fileDto объект с данными файла (имя и содержимое)
      * @return сохраненный файл с присвоенным ID
      */
     @Override
     public File save(FileDto fileDto) {
-        // Генерируем уникальный путь для файла
-        var path = getNewFilePath(fileDto.getName());
-        // Записываем содержимое файла на диск
-        writeFileBytes(path, fileDto.getContent());
-        // Сохраняем метаинформацию в БД и возвращаем результат
-        return fileRepository.save(new File(fileDto.getName(), path));
+        var saved = writeTimer.record(() -> saveFile(fileDto));
+        writtenBytes.record(saved.getSize());
+        return saved;
+    }
+
+    private File saveFile(FileDto fileDto) {
+        var file = new File(fileDto.getName(), null);
+        // Записываем содержимое во временный файл, попутно вычисляя размер и контрольную сумму
+        var temp = writeTempFile(file, fileDto);
+        try {
+            return contentAddressed ? saveBlob(file, temp) : saveUnique(file, temp);
+        } catch (RuntimeException e) {
+            // Временный файл не перемещен на место и больше не нужен
+            deleteTempFile(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Сохраняет файл под уникальным именем, даже если такое же содержимое уже есть.
+     * Если транзакция, в которой сохраняется файл, откатится, файл удаляется с диска вместе с записью.
+     */
+    private File saveUnique(File file, Path temp) {
+        var path = getNewFilePath(file.getName());
+        file.setPath(path);
+        moveFile(temp, path);
+        TransactionCallbacks.afterRollback(() -> deleteFile(path));
+        return fileRepository.save(file);
+    }
+
+    /**
+     * Сохраняет файл по пути, вычисленному из хэша содержимого, переиспользуя существующий блоб.
+     * Сохранения и удаления одного блоба упорядочиваются блокировкой его записи в БД (findByPathForUpdate),
+     * а не блокировками JVM: блокировка JVM, удерживаемая до конца транзакции, вместе с блокировками
+     * строк БД дает взаимную блокировку, которую БД не обнаружит.
+     * Новый блоб перемещается на место после фиксации транзакции, при откате удаляется только временный файл.
+     * Если такой же блоб параллельно сохранила другая транзакция, запись вставить не удастся,
+     * и вместо нее переиспользуется запись этой транзакции.
+     */
+    private File saveBlob(File file, Path temp) {
+        var path = getBlobPath(file.getChecksum());
+        file.setPath(path);
+        while (true) {
+            var existing = fileRepository.findByPathForUpdate(path);
+            if (existing.isPresent() && fileRepository.addReference(existing.get().getId())) {
+                deleteTempFile(temp);
+                return existing.get();
+            }
+            if (existing.isEmpty() && fileRepository.saveIfAbsent(file)) {
+                TransactionCallbacks.afterCommit(() -> moveBlob(temp, path));
+                TransactionCallbacks.afterRollback(() -> deleteTempFile(temp));
+                return file;
+            }
+        }
+    }
+
+    /**
+     * Перемещает новый блоб на место после фиксации его записи. Ошибка только записывается в журнал:
+     * транзакция уже зафиксирована, а запись без файла на диске отдается как отсутствующий файл.
+     */
+    private void moveBlob(Path temp, String path) {
+        try {
+            createStorageDirectory(Path.of(path).getParent().toString());
+            moveFile(temp, path);
+        } catch (RuntimeException e) {
+            LOGGER.error("Не удалось переместить блоб на место: {}", path, e);
+            deleteTempFile(temp);
+        }
     }
 
     /**
@@ -74,18 +203,62 @@ public class SimpleFileService implements FileService {
     }
 
     /**
-     * Записывает массив байтов в файл по указанному пути.
-     * @param path путь к файлу
-     * @param content содержимое файла в виде массива байтов
+     * Вычисляет путь блоба по хэшу содержимого. Блобы раскладываются по двум уровням
+     * поддиректорий (ab/cd/abcd...), чтобы в одной директории не оказывалось слишком много файлов.
+     * @param checksum SHA-256 содержимого в шестнадцатеричном виде
+     * @return путь к блобу
      */
-    private void writeFileBytes(String path, byte[] content) {
+    private String getBlobPath(String checksum) {
+        return Path.of(storageDirectory, checksum.substring(0, 2), checksum.substring(2, 4), checksum).toString();
+    }
+
+    /**
+     * Записывает содержимое файла потоком во временный файл в директории хранилища.
+     * Размер и SHA-256 вычисляются при записи и сохраняются в file.
+     * @param file файл, в который записываются размер и контрольная сумма
+     * @param fileDto источник содержимого
+     * @return путь к временному файлу
+     */
+    private Path writeTempFile(File file, FileDto fileDto) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(Path.of(storageDirectory), "upload-", ".tmp");
+            var digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+            try (var input = new DigestInputStream(fileDto.getInputStream(), digest);
+                 var output = Files.newOutputStream(temp)) {
+                file.setSize(input.transferTo(output));
+            }
+            file.setChecksum(HexFormat.of().formatHex(digest.digest()));
+            return temp;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            deleteTempFile(temp);
+            throw new RuntimeException("Не удалось записать файл: " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Атомарно перемещает полностью записанный временный файл на место,
+     * так что по пути path никогда не оказывается недописанный файл.
+     */
+    private void moveFile(Path temp, String path) {
         try {
-            Files.write(Path.of(path), content);
+            Files.move(temp, Path.of(path), StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             throw new RuntimeException("Не удалось записать файл: " + path, e);
         }
     }
 
+    private void deleteTempFile(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOGGER.warn("Не удалось удалить временный файл: {}", temp, e);
+        }
+    }
+
     /**
      * Получает файл по ID: читает содержимое из файловой системы и возвращает как DTO.
      * @param id идентификатор файла
@@ -99,11 +272,28 @@ public class SimpleFileService implements FileService {
             return Optional.empty();
         }
         // Читаем содержимое файла из файловой системы
-        var content = readFileAsBytes(fileOptional.get().getPath());
+        var content = readTimer.record(() -> readFileAsBytes(fileOptional.get().getPath()));
+        readBytes.record(content.length);
         // Возвращаем DTO с именем и содержимым файла
         return Optional.of(new FileDto(fileOptional.get().getName(), content));
     }
 
+    /**
+     * Получает файл по ID в виде ресурса на диске, не загружая содержимое в память.
+     * Содержимое затем передается клиенту потоком (в том числе по частям при Range-запросах).
+     * @param id идентификатор файла
+     * @return Optional с ресурсом или пустой Optional, если нет записи в БД или файла на диске
+     */
+    @Override
+    public Optional<FileResourceDto> getFileResourceById(int id) {
+        return fileRepository.findById(id)
+                .filter(file -> Files.isRegularFile(Path.of(file.getPath())))
+                .map(file -> {
+                    streamedBytes.record(file.getSize());
+                    return new FileResourceDto(file.getName(), new FileSystemResource(Path.of(file.getPath())));
+                });
+    }
+
     /**
      * Читает файл из файловой системы и возвращает его содержимое как массив байтов.
      * @param path путь к файлу
@@ -118,30 +308,77 @@ public class SimpleFileService implements FileService {
     }
 
     /**
-     * Удаляет файл: сначала из файловой системы, затем запись из БД.
+     * Удаляет ссылку на файл. Запись в БД и файл на диске удаляются,
+     * только когда на них не осталось ни одной ссылки.
+     * Запись блокируется до конца транзакции (как и при сохранении такого же содержимого),
+     * а файл с диска удаляется после фиксации, если за это время никто не сохранил блоб заново.
      * @param id идентификатор файла для удаления
      */
     @Override
     public void deleteById(int id) {
-        // Ищем файл в БД для получения пути к файлу в файловой системе
-        var fileOptional = fileRepository.findById(id);
-        if (fileOptional.isPresent()) {
-            // Удаляем файл из файловой системы
-            deleteFile(fileOptional.get().getPath());
-            // Удаляем запись о файле из БД
-            fileRepository.deleteById(id);
+        var fileOptional = fileRepository.findById(id)
+                .flatMap(file -> fileRepository.findByPathForUpdate(file.getPath()));
+        // Уменьшаем счетчик ссылок; запись удаляется из БД, если ссылка была последней
+        if (fileOptional.isPresent() && fileRepository.removeReference(id)) {
+            var path = fileOptional.get().getPath();
+            TransactionCallbacks.afterCommit(() -> deleteUnreferencedFile(path));
+        }
+    }
+
+    /**
+     * Удаляет файл и его уменьшенные копии с диска, если на его путь снова не ссылается ни одна запись:
+     * пока удаляющая транзакция фиксировалась, ожидавшее ее сохранение того же содержимого
+     * могло создать блоб заново. Сохранение переносит блоб на место только после своей фиксации,
+     * поэтому файл сначала атомарно убирается под временное имя и лишь затем проверяется запись:
+     * если она появилась, файл возвращается на место (содержимое по этому пути всегда одно и то же),
+     * а если сохранение зафиксируется позже проверки, оно само положит свой блоб.
+     */
+    private void deleteUnreferencedFile(String path) {
+        var file = Path.of(path);
+        var removed = file.resolveSibling(file.getFileName() + ".deleted-" + UUID.randomUUID());
+        try {
+            Files.move(file, removed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            removed = null;
+        } catch (IOException e) {
+            LOGGER.warn("Не удалось удалить файл: {}", path, e);
+            return;
+        }
+        if (fileRepository.findByPath(path).isPresent()) {
+            restoreFile(removed, file);
+            return;
+        }
+        if (removed != null) {
+            deleteFile(removed.toString());
+        }
+        imageVariantService.deleteVariants(path);
+    }
+
+    /**
+     * Возвращает на место файл, убранный перед удалением, если блоб успели сохранить заново.
+     * Сохранение могло уже положить свой файл: содержимое то же, поэтому он просто заменяется.
+     */
+    private void restoreFile(Path removed, Path file) {
+        if (removed == null) {
+            return;
+        }
+        try {
+            Files.move(removed, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Не удалось вернуть файл на место: {}", file, e);
         }
     }
 
     /**
-     * Удаляет файл из файловой системы.
+     * Удаляет файл из файловой системы. Запись о файле к этому моменту уже удалена или отменена,
+     * поэтому ошибка только записывается в журнал: на диске останется файл без ссылок.
      * @param path путь к файлу
      */
     private void deleteFile(String path) {
         try {
             Files.deleteIfExists(Path.of(path));
         } catch (IOException e) {
-            throw new RuntimeException("Не удалось удалить файл: " + path, e);
+            LOGGER.warn("Не удалось удалить файл: {}", path, e);
         }
     }
 }
\ No newline at end of file
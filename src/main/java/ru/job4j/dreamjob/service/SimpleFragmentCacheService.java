@@ -0,0 +1,66 @@
+package ru.job4j.dreamjob.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.Optional;
+
+/**
+ * Кэш отрисованных HTML-фрагментов страниц (например, таблицы со списком вакансий).
+ * Фрагменты группируются по областям (vacancies, candidates), ключ внутри области включает версию данных,
+ * поэтому после изменения таблицы, в том числе с другого экземпляра приложения, читается уже новый ключ.
+ * Сервисы, изменяющие данные, дополнительно сбрасывают свою область, чтобы устаревшие фрагменты не занимали память.
+ * Объем кэша ограничен суммарной длиной фрагментов в символах, статистика публикуется с тегом cache=fragments.
+ * Во фрагменты не должно попадать ничего, что зависит от пользователя.
+ */
+@ThreadSafe
+@Service
+public class SimpleFragmentCacheService implements FragmentCacheService {
+
+    private static final String SEPARATOR = ":";
+
+    private final Cache<String, String> cache;
+
+    public SimpleFragmentCacheService(MeterRegistry meterRegistry,
+                                      @Value("${cache.fragments.maximum-weight:10000000}") long maximumWeight) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String key, String fragment) -> fragment.length())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fragments");
+    }
+
+    /**
+     * Возвращает фрагмент из кэша.
+     * @param region область (список, к данным которого относится фрагмент)
+     * @param key ключ фрагмента в области, включающий версию данных
+     */
+    @Override
+    public Optional<String> findFragment(String region, String key) {
+        return Optional.ofNullable(cache.getIfPresent(region + SEPARATOR + key));
+    }
+
+    /**
+     * Кладет отрисованный фрагмент в кэш. Фрагмент отрисовывается после транзакции, в которой прочитаны
+     * версия и данные, поэтому соединение с БД не удерживается на время отрисовки; одновременные промахи
+     * одного ключа отрисовывают его каждый, и в кэше остается любой из одинаковых результатов.
+     * @param region область (список, к данным которого относится фрагмент)
+     * @param key ключ фрагмента в области, включающий версию тех данных, из которых он отрисован
+     * @param fragment отрисованный фрагмент
+     */
+    @Override
+    public void putFragment(String region, String key, String fragment) {
+        cache.put(region + SEPARATOR + key, fragment);
+    }
+
+    @Override
+    public void invalidate(String region) {
+        var prefix = region + SEPARATOR;
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+}
@@ -0,0 +1,188 @@
+package ru.job4j.dreamjob.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.dto.FileResourceDto;
+import ru.job4j.dreamjob.repository.FileRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис уменьшенных копий изображений. Копия нужной ширины создается при первом запросе,
+ * сохраняется в отдельную директорию рядом с хранилищем файлов и дальше отдается с диска.
+ * Запрошенная ширина округляется вверх до одной из разрешенных, чтобы число копий одного файла было ограничено.
+ */
+@Service
+public class SimpleImageVariantService implements ImageVariantService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleImageVariantService.class);
+
+    private static final Set<String> SUPPORTED_FORMATS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+
+    private final FileRepository fileRepository;
+
+    private final Path variantsDirectory;
+
+    private final List<Integer> widths;
+
+    /**
+     * Копии, которые создаются прямо сейчас: параллельные запросы одной копии ждут один результат.
+     */
+    private final Map<Path, CompletableFuture<Void>> inProgress = new ConcurrentHashMap<>();
+
+    /**
+     * @param sql2oFileRepository репозиторий для работы с файлами в БД
+     * @param variantsDirectory директория для уменьшенных копий
+     * @param widths разрешенные значения ширины копий
+     */
+    public SimpleImageVariantService(FileRepository sql2oFileRepository,
+                                     @Value("${file.variants.directory:${file.directory}-variants}") String variantsDirectory,
+                                     @Value("${file.variants.widths:100,200,400,800}") List<Integer> widths) {
+        this.fileRepository = sql2oFileRepository;
+        this.variantsDirectory = Path.of(variantsDirectory);
+        this.widths = widths.stream().sorted().toList();
+    }
+
+    /**
+     * Возвращает копию изображения не уже запрошенной ширины. Если формат файла не поддерживается,
+     * возвращается исходный файл; если изображение уже не шире нужного, копией служит его дубликат.
+     * @param fileId идентификатор файла
+     * @param width желаемая ширина в пикселях
+     * @return Optional с файлом или пустой Optional, если файл не найден
+     */
+    @Override
+    public Optional<FileResourceDto> getVariant(int fileId, int width) {
+        var fileOptional = fileRepository.findById(fileId)
+                .filter(file -> Files.isRegularFile(Path.of(file.getPath())));
+        if (fileOptional.isEmpty()) {
+            return Optional.empty();
+        }
+        var file = fileOptional.get();
+        var original = Path.of(file.getPath());
+        var format = formatOf(file.getName());
+        if (format.isEmpty()) {
+            return Optional.of(new FileResourceDto(file.getName(), new FileSystemResource(original)));
+        }
+        var allowedWidth = snapWidth(width);
+        var variant = variantsDirectory.resolve("w" + allowedWidth)
+                .resolve(original.getFileName() + "." + format.get());
+        if (!Files.exists(variant)) {
+            createOnce(original, variant, allowedWidth, format.get());
+        }
+        return Optional.of(new FileResourceDto(file.getName(), new FileSystemResource(variant)));
+    }
+
+    /**
+     * Копии ищутся во всех директориях ширины (w*), а не только в разрешенных сейчас:
+     * после изменения file.variants.widths копии прежних ширин тоже удаляются.
+     * Ошибка удаления только записывается в журнал: на диске останется копия без исходного файла.
+     */
+    @Override
+    public void deleteVariants(String path) {
+        if (!Files.isDirectory(variantsDirectory)) {
+            return;
+        }
+        var name = Path.of(path).getFileName().toString();
+        try (var widthDirectories = Files.newDirectoryStream(variantsDirectory, "w*")) {
+            for (var directory : widthDirectories) {
+                for (var format : SUPPORTED_FORMATS) {
+                    Files.deleteIfExists(directory.resolve(name + "." + format));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Не удалось удалить уменьшенные копии файла: {}", path, e);
+        }
+    }
+
+    private int snapWidth(int width) {
+        return widths.stream()
+                .filter(allowed -> allowed >= width)
+                .findFirst()
+                .orElse(widths.get(widths.size() - 1));
+    }
+
+    private Optional<String> formatOf(String name) {
+        var index = name.lastIndexOf('.');
+        var extension = index < 0 ? "" : name.substring(index + 1).toLowerCase(Locale.ROOT);
+        return SUPPORTED_FORMATS.contains(extension) ? Optional.of(extension) : Optional.empty();
+    }
+
+    /**
+     * Создает копию, если ее еще никто не создает; иначе дожидается результата другого потока.
+     */
+    private void createOnce(Path original, Path variant, int width, String format) {
+        var future = new CompletableFuture<Void>();
+        var running = inProgress.putIfAbsent(variant, future);
+        if (running != null) {
+            running.join();
+            return;
+        }
+        try {
+            if (!Files.exists(variant)) {
+                writeVariant(original, variant, width, format);
+            }
+            future.complete(null);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(variant, future);
+        }
+    }
+
+    /**
+     * Записывает копию во временный файл и атомарно перемещает на место,
+     * чтобы параллельные запросы не увидели недописанное изображение.
+     */
+    private void writeVariant(Path original, Path variant, int width, String format) {
+        try {
+            Files.createDirectories(variant.getParent());
+            var temp = Files.createTempFile(variant.getParent(), "variant-", ".tmp");
+            try {
+                var image = ImageIO.read(original.toFile());
+                var resized = image != null && image.getWidth() > width
+                        && ImageIO.write(resize(image, width, format), format, temp.toFile());
+                if (!resized) {
+                    Files.copy(original, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(temp, variant, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось создать уменьшенную копию файла: " + original, e);
+        }
+    }
+
+    private BufferedImage resize(BufferedImage image, int width, String format) {
+        var height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        var type = "png".equals(format) || "gif".equals(format)
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        var scaled = new BufferedImage(width, height, type);
+        var graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
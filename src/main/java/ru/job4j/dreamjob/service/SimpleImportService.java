@@ -0,0 +1,299 @@
+package ru.job4j.dreamjob.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.dreamjob.dto.ImportReport;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.CandidateRepository;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Пакетный импорт вакансий и кандидатов из NDJSON или CSV.
+ * Входные данные читаются потоком построчно, разобранные записи накапливаются в пачки
+ * по import.chunk-size штук, и каждая пачка сохраняется одним JDBC batch в отдельной транзакции.
+ * Если пачка не сохранилась, ее строки сохраняются по одной, чтобы найти и описать ошибочные,
+ * а остальные все равно загрузить. Текст ошибок БД пишется в журнал, а в отчет попадает описание ошибки по полю.
+ */
+@ThreadSafe
+@Service
+public class SimpleImportService implements ImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleImportService.class);
+
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private static final String H2_FOREIGN_KEY_VIOLATION = "23506";
+
+    private static final String NOT_NULL_VIOLATION = "23502";
+
+    private static final String DATA_EXCEPTION_CLASS = "22";
+
+    private final VacancyRepository vacancyRepository;
+
+    private final CandidateRepository candidateRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    public SimpleImportService(VacancyRepository cachingVacancyRepository,
+                               CandidateRepository cachingCandidateRepository,
+                               ObjectMapper objectMapper,
+                               @Value("${import.chunk-size:1000}") int chunkSize) {
+        this.vacancyRepository = cachingVacancyRepository;
+        this.candidateRepository = cachingCandidateRepository;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ImportReport importVacancies(InputStream input, ImportFormat format, Charset charset) {
+        return importRecords(new InputStreamReader(input, charset), format, this::toVacancy, vacancyRepository::saveAll);
+    }
+
+    @Override
+    public ImportReport importCandidates(InputStream input, ImportFormat format, Charset charset) {
+        return importRecords(new InputStreamReader(input, charset), format, this::toCandidate,
+                candidateRepository::saveAllCandidate);
+    }
+
+    private <T> ImportReport importRecords(Reader input, ImportFormat format,
+                                           Function<Map<String, String>, T> mapper, Consumer<List<T>> saveAll) {
+        var report = new ImportReport();
+        var chunk = new Chunk<>(saveAll, report);
+        var parser = format == ImportFormat.CSV ? new CsvRecordParser() : (RecordParser) this::parseJson;
+        try (var reader = new BufferedReader(input)) {
+            var lineNumber = 0;
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    var record = parser.parse(line);
+                    if (record != null) {
+                        chunk.add(lineNumber, mapper.apply(record));
+                    }
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    report.addError(lineNumber, e.getMessage());
+                }
+            }
+            chunk.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать данные для импорта", e);
+        }
+        return report;
+    }
+
+    private Vacancy toVacancy(Map<String, String> record) {
+        var vacancy = new Vacancy();
+        vacancy.setTitle(required(record, "title"));
+        vacancy.setDescription(record.getOrDefault("description", ""));
+        vacancy.setVisible(Boolean.parseBoolean(record.getOrDefault("visible", "true")));
+        vacancy.setCityId(Integer.parseInt(required(record, "cityId")));
+        vacancy.setCreationDate(creationDate(record));
+        return vacancy;
+    }
+
+    private Candidate toCandidate(Map<String, String> record) {
+        var candidate = new Candidate();
+        candidate.setName(required(record, "name"));
+        candidate.setDescription(record.getOrDefault("description", ""));
+        candidate.setCityId(Integer.parseInt(required(record, "cityId")));
+        candidate.setCreationDate(creationDate(record));
+        return candidate;
+    }
+
+    private String required(Map<String, String> record, String field) {
+        var value = record.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Не заполнено поле " + field);
+        }
+        return value;
+    }
+
+    private LocalDateTime creationDate(Map<String, String> record) {
+        var value = record.get("creationDate");
+        return value == null || value.isBlank() ? LocalDateTime.now() : LocalDateTime.parse(value);
+    }
+
+    private Map<String, String> parseJson(String line) {
+        try {
+            var node = objectMapper.readTree(line);
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Ожидался JSON-объект");
+            }
+            var record = new HashMap<String, String>();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getValue().isNull()) {
+                    record.put(field.getKey(), field.getValue().asText());
+                }
+            });
+            return record;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Описание ошибки сохранения строки для отчета. Текст исключения драйвера (в нем SQL и устройство схемы)
+     * клиенту не передается: нарушение ограничения описывается по SQLSTATE, остальное - общей фразой.
+     */
+    private static String describe(RuntimeException e) {
+        var sqlState = sqlStateOf(e);
+        if (sqlState == null) {
+            return "Не удалось сохранить запись";
+        }
+        return switch (sqlState) {
+            case FOREIGN_KEY_VIOLATION, H2_FOREIGN_KEY_VIOLATION -> "Поле cityId: города с таким идентификатором нет";
+            case NOT_NULL_VIOLATION -> "Не заполнено обязательное поле";
+            default -> sqlState.startsWith(DATA_EXCEPTION_CLASS) ? "Недопустимое значение поля" : "Не удалось сохранить запись";
+        };
+    }
+
+    private static String sqlStateOf(Throwable throwable) {
+        for (var cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Разбирает одну строку входных данных в набор полей.
+     * Возвращает null, если строка не содержит записи (например, заголовок CSV).
+     */
+    private interface RecordParser {
+        Map<String, String> parse(String line);
+    }
+
+    /**
+     * Разбор CSV: первая строка - заголовок с именами полей.
+     * Поля в двойных кавычках могут содержать запятые, кавычка внутри такого поля удваивается.
+     * Переводы строк внутри полей не поддерживаются.
+     */
+    private static final class CsvRecordParser implements RecordParser {
+
+        private List<String> header;
+
+        @Override
+        public Map<String, String> parse(String line) {
+            var values = split(line);
+            if (header == null) {
+                header = values;
+                return null;
+            }
+            if (values.size() != header.size()) {
+                throw new IllegalArgumentException("Ожидалось полей: " + header.size() + ", получено: " + values.size());
+            }
+            var record = new HashMap<String, String>();
+            for (var i = 0; i < values.size(); i++) {
+                record.put(header.get(i), values.get(i));
+            }
+            return record;
+        }
+
+        private List<String> split(String line) {
+            var values = new ArrayList<String>();
+            var value = new StringBuilder();
+            var quoted = false;
+            for (var i = 0; i < line.length(); i++) {
+                var c = line.charAt(i);
+                if (quoted && c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append(c);
+                    i++;
+                } else if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == ',' && !quoted) {
+                    values.add(value.toString().trim());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Незакрытая кавычка");
+            }
+            values.add(value.toString().trim());
+            return values;
+        }
+    }
+
+    /**
+     * Накопитель очередной пачки записей вместе с номерами строк, из которых они получены.
+     */
+    private final class Chunk<T> {
+
+        private List<T> records = new ArrayList<>();
+
+        private List<Integer> lines = new ArrayList<>();
+
+        private final Consumer<List<T>> saveAll;
+
+        private final ImportReport report;
+
+        private Chunk(Consumer<List<T>> saveAll, ImportReport report) {
+            this.saveAll = saveAll;
+            this.report = report;
+        }
+
+        private void add(int line, T record) {
+            records.add(record);
+            lines.add(line);
+            if (records.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (records.isEmpty()) {
+                return;
+            }
+            try {
+                saveAll.accept(records);
+                report.addImported(records.size());
+            } catch (RuntimeException e) {
+                // Транзакция пачки откатилась целиком: сохраняем строки по одной, чтобы найти ошибочные
+                for (var i = 0; i < records.size(); i++) {
+                    saveOne(lines.get(i), records.get(i));
+                }
+            }
+            records = new ArrayList<>();
+            lines = new ArrayList<>();
+        }
+
+        private void saveOne(int line, T record) {
+            try {
+                saveAll.accept(List.of(record));
+                report.addImported(1);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to import line {}", line, e);
+                report.addError(line, describe(e));
+            }
+        }
+    }
+}
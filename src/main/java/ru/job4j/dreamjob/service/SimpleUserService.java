@@ -1,27 +1,90 @@
 package ru.job4j.dreamjob.service;
 
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import ru.job4j.dreamjob.model.User;
 import ru.job4j.dreamjob.repository.UserRepository;
 
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Пользователи хранятся с хэшами паролей. Пользователь ищется только по почте,
+ * а пароль сверяется с хэшем в пуле passwordHashingExecutor, чтобы медленный хэш
+ * не держал потоки сервера и нагрузка на процессор от входов была ограничена.
+ */
+@ThreadSafe
 @Service
 public class SimpleUserService implements UserService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimpleUserService.class);
+
     private final UserRepository userRepository;
 
-    public SimpleUserService(UserRepository userRepository) {
+    private final PasswordHasher passwordHasher;
+
+    private final Executor executor;
+
+    /**
+     * Хэш, с которым сверяется пароль, если почта не найдена: ответ занимает столько же времени,
+     * сколько и для существующего пользователя, и по нему нельзя узнать, зарегистрирована ли почта.
+     */
+    private final String dummyHash;
+
+    public SimpleUserService(UserRepository userRepository, PasswordHasher passwordHasher,
+                             Executor passwordHashingExecutor) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.executor = passwordHashingExecutor;
+        this.dummyHash = passwordHasher.hash(UUID.randomUUID().toString());
     }
 
     @Override
     public Optional<User> save(User user) {
+        user.setPassword(passwordHasher.hash(user.getPassword()));
         return userRepository.save(user);
     }
 
     @Override
-    public Optional<User> findByEmailAndPassword(String email, String password) {
-        return userRepository.findByEmailAndPassword(email, password);
+    public CompletableFuture<Optional<User>> login(String email, String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(email, password), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Optional<User> verify(String email, String password) {
+        var user = userRepository.findByEmail(email);
+        if (user.isEmpty()) {
+            passwordHasher.matches(password, dummyHash);
+            return Optional.empty();
+        }
+        if (!passwordHasher.matches(password, user.get().getPassword())) {
+            return Optional.empty();
+        }
+        if (passwordHasher.needsRehash(user.get().getPassword())) {
+            rehash(user.get(), password);
+        }
+        return user;
+    }
+
+    /**
+     * Пересчитывает хэш с текущей стоимостью. Ошибка сохранения не мешает входу: хэш пересчитается в следующий раз.
+     */
+    private void rehash(User user, String password) {
+        var hash = passwordHasher.hash(password);
+        try {
+            if (userRepository.updatePassword(user.getId(), hash)) {
+                user.setPassword(hash);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to rehash password of user: {}", user.getId(), e);
+        }
     }
-}
\ No newline at end of file
+}
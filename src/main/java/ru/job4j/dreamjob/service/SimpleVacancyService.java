@@ -1,32 +1,55 @@
 package ru.job4j.dreamjob.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.dreamjob.dto.FacetedResult;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.repository.VacancyRepository;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import net.jcip.annotations.ThreadSafe;
 
+/**
+ * Операции с вакансиями. Чтение выполняется в транзакциях только для чтения и идет с реплики,
+ * если она настроена (ReadWriteRoutingDataSource); изменяющие операции - в основную БД.
+ */
 @ThreadSafe
 @Service
+@Transactional(readOnly = true)
 public class SimpleVacancyService implements VacancyService {
 
+    private static final int MAX_SEARCH_RESULTS = 10_000;
+
     private final VacancyRepository vacancyRepository;
 
     private final FileService fileService;
 
-    public SimpleVacancyService(VacancyRepository sql2oVacancyRepository, FileService fileService) {
-        this.vacancyRepository = sql2oVacancyRepository;
+    private final FragmentCacheService fragmentCacheService;
+
+    public SimpleVacancyService(VacancyRepository cachingVacancyRepository, FileService fileService,
+                                FragmentCacheService fragmentCacheService) {
+        this.vacancyRepository = cachingVacancyRepository;
         this.fileService = fileService;
+        this.fragmentCacheService = fragmentCacheService;
     }
 
     @Override
+    @Transactional
     public Vacancy save(Vacancy vacancy, FileDto image) {
         saveNewFile(vacancy, image);
-        return vacancyRepository.save(vacancy);
+        var saved = vacancyRepository.save(vacancy);
+        fragmentCacheService.invalidate(FragmentCacheService.VACANCIES);
+        return saved;
     }
 
     private void saveNewFile(Vacancy vacancy, FileDto image) {
@@ -35,24 +58,30 @@ public class SimpleVacancyService implements VacancyService {
     }
 
     @Override
+    @Transactional
     public void deleteById(int id) {
         var fileOptional = findById(id);
         if (fileOptional.isPresent()) {
             vacancyRepository.deleteById(id);
+            fragmentCacheService.invalidate(FragmentCacheService.VACANCIES);
             fileService.deleteById(fileOptional.get().getFileId());
         }
     }
 
     @Override
+    @Transactional
     public boolean update(Vacancy vacancy, FileDto image) {
-        var isNewFileEmpty = image.getContent().length == 0;
+        var isNewFileEmpty = image.isEmpty();
         if (isNewFileEmpty) {
-            return vacancyRepository.update(vacancy);
+            var isUpdated = vacancyRepository.update(vacancy);
+            fragmentCacheService.invalidate(FragmentCacheService.VACANCIES);
+            return isUpdated;
         }
         /* если передан новый не пустой файл, то старый удаляем, а новый сохраняем */
         var oldFileId = vacancy.getFileId();
         saveNewFile(vacancy, image);
         var isUpdated = vacancyRepository.update(vacancy);
+        fragmentCacheService.invalidate(FragmentCacheService.VACANCIES);
         fileService.deleteById(oldFileId);
         return isUpdated;
     }
@@ -66,4 +95,108 @@ public class SimpleVacancyService implements VacancyService {
     public Collection<Vacancy> findAll() {
         return vacancyRepository.findAll();
     }
+
+    @Override
+    public Optional<VacancyDetailsDto> findDetailsById(int id) {
+        return vacancyRepository.findDetailsById(id);
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(int id) {
+        return vacancyRepository.findVersionById(id);
+    }
+
+    /**
+     * Читает версию таблицы вакансий и выполняет чтение списка в одной транзакции только для чтения.
+     * Чтения в reader (findPage) присоединяются к ней и идут в ту же БД, что и версия: в двух транзакциях
+     * версия могла быть прочитана из основной БД, а страница - с отстающей реплики, и в кэш фрагментов
+     * под новой версией попала бы старая страница. Версия читается первой, поэтому страница может
+     * оказаться только новее версии, и тогда следующий запрос просто отрисует ее заново.
+     * @param reader чтение по версии таблицы: проверка If-None-Match, кэш фрагментов, чтение страницы
+     */
+    @Override
+    public <T> T readWithTableVersion(Function<TableVersion, T> reader) {
+        return reader.apply(vacancyRepository.findTableVersion());
+    }
+
+    /**
+     * Возвращает страницу вакансий (сначала новые). Запрашивается на одну запись больше размера страницы,
+     * чтобы без отдельного COUNT узнать, есть ли следующая (или предыдущая) страница.
+     * @param after курсор, после которого начинается страница (переход вперед)
+     * @param before курсор, перед которым заканчивается страница (переход назад)
+     * @param size размер страницы
+     */
+    @Override
+    public Page<Vacancy> findPage(String after, String before, int size) {
+        var beforeCursor = PageCursor.decode(before);
+        if (beforeCursor.isPresent()) {
+            var vacancies = vacancyRepository.findPageBefore(beforeCursor.get(), size + 1);
+            if (!vacancies.isEmpty()) {
+                var hasPrevious = vacancies.size() > size;
+                var items = hasPrevious ? vacancies.subList(1, vacancies.size()) : vacancies;
+                return new Page<>(items, cursorOf(items.get(items.size() - 1)),
+                        hasPrevious ? cursorOf(items.get(0)) : null);
+            }
+        }
+        var afterCursor = PageCursor.decode(after);
+        var vacancies = vacancyRepository.findPageAfter(afterCursor.orElse(null), size + 1);
+        var hasNext = vacancies.size() > size;
+        var items = hasNext ? vacancies.subList(0, size) : vacancies;
+        var hasPrevious = afterCursor.isPresent() && !items.isEmpty();
+        return new Page<>(items, hasNext ? cursorOf(items.get(items.size() - 1)) : null,
+                hasPrevious ? cursorOf(items.get(0)) : null);
+    }
+
+    /**
+     * Возвращает страницу результатов полнотекстового поиска, упорядоченных по релевантности.
+     * Курсор страницы - число пропускаемых результатов: порядок по релевантности не позволяет
+     * продолжить выборку с ключа последней записи, а пропуск в индексе дешевый.
+     * Но пропускаемые результаты индекс все же собирает в памяти, а курсор приходит от клиента, поэтому
+     * листать можно только первые {@value #MAX_SEARCH_RESULTS} результатов, дальше возвращается пустая страница.
+     * @param query поисковый запрос
+     * @param after курсор, после которого начинается страница
+     * @param size размер страницы
+     */
+    @Override
+    public Page<Vacancy> search(String query, String after, int size) {
+        if (query == null || query.isBlank()) {
+            return new Page<>(List.of(), null, null);
+        }
+        var offset = offsetOf(after);
+        if (offset >= MAX_SEARCH_RESULTS) {
+            return new Page<>(List.of(), null, null);
+        }
+        var vacancies = vacancyRepository.search(query, offset, size + 1);
+        var items = vacancies.size() > size ? vacancies.subList(0, size) : vacancies;
+        var hasNext = vacancies.size() > size && offset + size < MAX_SEARCH_RESULTS;
+        return new Page<>(items, hasNext ? String.valueOf(offset + size) : null,
+                offset > 0 ? String.valueOf(Math.max(0, offset - size)) : null);
+    }
+
+    /**
+     * Возвращает страницу вакансий, отобранных по условиям, вместе с количеством подходящих вакансий по городам.
+     * @param filter условия отбора
+     * @param after курсор, после которого начинается страница
+     * @param size размер страницы
+     */
+    @Override
+    public FacetedResult<Vacancy> filter(VacancyFilter filter, String after, int size) {
+        var result = vacancyRepository.findByFilter(filter, PageCursor.decode(after).orElse(null), size + 1);
+        var vacancies = result.getItems();
+        var hasNext = vacancies.size() > size;
+        var items = hasNext ? vacancies.subList(0, size) : vacancies;
+        return new FacetedResult<>(items, result.getCityCounts(), hasNext ? cursorOf(items.get(items.size() - 1)) : null);
+    }
+
+    private int offsetOf(String cursor) {
+        try {
+            return cursor == null ? 0 : Math.max(0, Integer.parseInt(cursor));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private String cursorOf(Vacancy vacancy) {
+        return new PageCursor(vacancy.getCreationDate(), vacancy.getId()).encode();
+    }
 }
\ No newline at end of file
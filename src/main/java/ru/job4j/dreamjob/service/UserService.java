@@ -3,10 +3,15 @@ package ru.job4j.dreamjob.service;
 import ru.job4j.dreamjob.model.User;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserService {
 
     Optional<User> save(User user);
 
-    Optional<User> findByEmailAndPassword(String email, String password);
-}
\ No newline at end of file
+    /**
+     * Проверяет почту и пароль в отдельном пуле потоков. Если пул перегружен,
+     * результат завершается исключением {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    CompletableFuture<Optional<User>> login(String email, String password);
+}
@@ -1,10 +1,16 @@
 package ru.job4j.dreamjob.service;
 
+import ru.job4j.dreamjob.dto.FacetedResult;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.Vacancy;
 
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Function;
 
 public interface VacancyService {
     Vacancy save(Vacancy vacancy, FileDto image);
@@ -16,4 +22,16 @@ public interface VacancyService {
     Optional<Vacancy> findById(int id);
 
     Collection<Vacancy> findAll();
+
+    Optional<VacancyDetailsDto> findDetailsById(int id);
+
+    Optional<Integer> findVersionById(int id);
+
+    <T> T readWithTableVersion(Function<TableVersion, T> reader);
+
+    Page<Vacancy> findPage(String after, String before, int size);
+
+    Page<Vacancy> search(String query, String after, int size);
+
+    FacetedResult<Vacancy> filter(VacancyFilter filter, String after, int size);
 }
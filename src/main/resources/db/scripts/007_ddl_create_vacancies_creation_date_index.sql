@@ -0,0 +1 @@
+create index vacancies_creation_date_id_idx on vacancies (creation_date, id);
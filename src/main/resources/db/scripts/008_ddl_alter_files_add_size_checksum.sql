@@ -0,0 +1,2 @@
+alter table files add column size bigint not null default 0;
+alter table files add column checksum varchar;
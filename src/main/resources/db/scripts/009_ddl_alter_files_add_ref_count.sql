@@ -0,0 +1 @@
+alter table files add column ref_count int not null default 1;
@@ -0,0 +1,2 @@
+create index vacancies_city_id_visible_creation_date_id_idx on vacancies (city_id, visible, creation_date, id);
+create index vacancies_visible_creation_date_id_idx on vacancies (visible, creation_date, id);
@@ -0,0 +1,2 @@
+create index candidates_city_id_creation_date_id_idx on candidates (city_id, creation_date, id);
+create index candidates_creation_date_id_idx on candidates (creation_date, id);
@@ -0,0 +1 @@
+alter table vacancies add column version int not null default 1;
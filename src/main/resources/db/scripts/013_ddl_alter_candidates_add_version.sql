@@ -0,0 +1 @@
+alter table candidates add column version int not null default 1;
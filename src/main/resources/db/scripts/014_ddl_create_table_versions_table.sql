@@ -0,0 +1,7 @@
+create table table_versions
+(
+    table_name varchar primary key,
+    version    bigint not null
+);
+insert into table_versions(table_name, version) values('vacancies', 1);
+insert into table_versions(table_name, version) values('candidates', 1);
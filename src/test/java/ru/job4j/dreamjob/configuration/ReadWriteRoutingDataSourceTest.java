@@ -0,0 +1,211 @@
+package ru.job4j.dreamjob.configuration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sql2o.Sql2o;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.PrimaryPinning;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+import ru.job4j.dreamjob.repository.Sql2oVacancyRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Основная БД - тестовая БД со схемой из миграций, реплика - отдельная БД H2 в памяти
+ * с таблицей вакансий, в которой лежит одна вакансия "replica". По тому, видна ли эта вакансия,
+ * тест определяет, откуда было прочитано.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;"
+            + "DB_CLOSE_DELAY=-1";
+
+    private static final DatasourceConfiguration CONFIGURATION = new DatasourceConfiguration();
+
+    private static InstrumentedDataSource primaryPool;
+
+    private static Sql2o replicaClient;
+
+    private static Sql2oFileRepository primaryFileRepository;
+
+    private static File file;
+
+    private static ReplicaProperties replica;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    private Sql2oVacancyRepository vacancyRepository;
+
+    private TransactionTemplate readTransaction;
+
+    private TransactionTemplate writeTransaction;
+
+    @BeforeAll
+    public static void initDatabases() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = ReadWriteRoutingDataSourceTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        primaryPool = CONFIGURATION.connectionPool(properties.getProperty("datasource.url"),
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                new DatasourcePoolProperties());
+        primaryFileRepository = new Sql2oFileRepository(
+                CONFIGURATION.databaseClient(primaryPool, CONFIGURATION.sqlParameterParsingStrategy()));
+        file = primaryFileRepository.save(new File("routing", "routing"));
+
+        replicaClient = new Sql2o(REPLICA_URL, "", "");
+        try (var connection = replicaClient.open()) {
+            connection.createQuery("""
+                    CREATE TABLE vacancies (id SERIAL PRIMARY KEY, title VARCHAR, description VARCHAR,
+                    creation_date TIMESTAMP, visible BOOLEAN, city_id INT, file_id INT, version INT DEFAULT 0)
+                    """).executeUpdate();
+            connection.createQuery("CREATE TABLE replica_lag (seconds NUMERIC)").executeUpdate();
+            connection.createQuery("INSERT INTO replica_lag VALUES (0)").executeUpdate();
+            connection.createQuery("INSERT INTO vacancies (title, description, creation_date, visible, city_id, file_id) "
+                    + "VALUES ('replica', 'replica', CURRENT_TIMESTAMP, TRUE, 1, 0)").executeUpdate();
+        }
+
+        replica = new ReplicaProperties();
+        replica.setUrl(REPLICA_URL);
+        replica.setUsername("");
+        replica.setPassword("");
+        replica.setLagQuery("SELECT seconds FROM replica_lag");
+        replica.setMaxLag(Duration.ofSeconds(10));
+    }
+
+    @AfterAll
+    public static void closeDatabases() throws Exception {
+        primaryFileRepository.deleteById(file.getId());
+        primaryPool.close();
+    }
+
+    @BeforeEach
+    public void initRouting() {
+        setReplicaLag(0);
+        routingDataSource = CONFIGURATION.routingDataSource(primaryPool, replica, new DatasourcePoolProperties());
+        routingDataSource.checkReplica();
+        var readWriteDataSource = CONFIGURATION.readWriteDataSource(routingDataSource);
+        vacancyRepository = new Sql2oVacancyRepository(CONFIGURATION.databaseClient(
+                CONFIGURATION.transactionalDataSource(readWriteDataSource), CONFIGURATION.sqlParameterParsingStrategy()));
+        var transactionManager = CONFIGURATION.transactionManager(readWriteDataSource);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void clearPrimary() throws Exception {
+        PrimaryPinning.endRequest();
+        for (var vacancy : vacancyRepository.findAll()) {
+            vacancyRepository.deleteById(vacancy.getId());
+        }
+        routingDataSource.close();
+    }
+
+    @Test
+    public void whenReadOnlyTransactionThenReadFromReplica() {
+        assertThat(routingDataSource.isReplicaAvailable()).isTrue();
+        assertThat(readTitles()).containsExactly("replica");
+        assertThat(routingDataSource.getReplicaConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenNoTransactionThenReadFromPrimary() {
+        assertThat(vacancyRepository.findAll()).isEmpty();
+        assertThat(routingDataSource.getReplicaConnectionCount()).isZero();
+    }
+
+    @Test
+    public void whenWriteTransactionThenPrimaryAndRequestReadsOwnWrites() {
+        PrimaryPinning.beginRequest(false);
+
+        writeTransaction.execute(status -> vacancyRepository.save(
+                new Vacancy(0, "primary", "primary", now().withNano(0), true, 1, file.getId())));
+
+        assertThat(readTitles()).containsExactly("primary");
+        assertThat(PrimaryPinning.endRequest()).isTrue();
+        assertThat(readTitles()).containsExactly("replica");
+    }
+
+    @Test
+    public void whenSessionPinnedThenReadFromPrimary() {
+        PrimaryPinning.beginRequest(true);
+
+        assertThat(readTitles()).isEmpty();
+        assertThat(PrimaryPinning.endRequest()).isFalse();
+    }
+
+    @Test
+    public void whenOnPrimaryThenReadFromPrimaryInReadOnlyTransaction() {
+        var titles = readTransaction.execute(status -> PrimaryPinning.onPrimary(this::titles));
+
+        assertThat(titles).isEmpty();
+        assertThat(readTitles()).containsExactly("replica");
+    }
+
+    @Test
+    public void whenReplicaLagsThenReadFromPrimaryUntilItCatchesUp() {
+        setReplicaLag(30);
+        routingDataSource.checkReplica();
+
+        assertThat(routingDataSource.isReplicaAvailable()).isFalse();
+        assertThat(routingDataSource.getReplicaLagMillis()).isEqualTo(30_000);
+        assertThat(readTitles()).isEmpty();
+
+        setReplicaLag(0);
+        routingDataSource.checkReplica();
+
+        assertThat(readTitles()).containsExactly("replica");
+    }
+
+    @Test
+    public void whenReplicaDownThenFallBackToPrimary() throws Exception {
+        var replicaPool = CONFIGURATION.connectionPool(REPLICA_URL, "", "", new DatasourcePoolProperties());
+        try (var routing = new ReadWriteRoutingDataSource(primaryPool, replicaPool, replica)) {
+            routing.checkReplica();
+            var readWriteDataSource = CONFIGURATION.readWriteDataSource(routing);
+            var repository = new Sql2oVacancyRepository(CONFIGURATION.databaseClient(
+                    CONFIGURATION.transactionalDataSource(readWriteDataSource), CONFIGURATION.sqlParameterParsingStrategy()));
+            var transaction = new TransactionTemplate(CONFIGURATION.transactionManager(readWriteDataSource));
+            transaction.setReadOnly(true);
+            replicaPool.close();
+
+            Collection<Vacancy> vacancies = transaction.execute(status -> repository.findAll());
+
+            assertThat(vacancies).isEmpty();
+            assertThat(routing.isReplicaAvailable()).isFalse();
+            assertThat(routing.getReplicaFailureCount()).isEqualTo(1);
+
+            routing.checkReplica();
+
+            assertThat(routing.isReplicaAvailable()).isFalse();
+        }
+    }
+
+    private List<String> readTitles() {
+        return readTransaction.execute(status -> titles());
+    }
+
+    private List<String> titles() {
+        return vacancyRepository.findAll().stream().map(Vacancy::getTitle).toList();
+    }
+
+    private static void setReplicaLag(int seconds) {
+        try (var connection = replicaClient.open()) {
+            connection.createQuery("UPDATE replica_lag SET seconds = :seconds")
+                    .addParameter("seconds", seconds)
+                    .executeUpdate();
+        }
+    }
+}
@@ -2,19 +2,34 @@ package ru.job4j.dreamjob.controller;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
+import ru.job4j.dreamjob.dto.FacetedResult;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.TableVersion;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.service.CandidateService;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.SimpleFragmentCacheService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static java.time.LocalDateTime.now;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -25,15 +40,22 @@ public class CandidateControllerTest {
 
     private CandidateService candidateService;
     private CityService cityService;
+    private ITemplateEngine templateEngine;
     private CandidateController candidateController;
     private MultipartFile testFile;
+    private ServletWebRequest webRequest;
 
     @BeforeEach
     public void initServices() {
         candidateService = mock(CandidateService.class);
         cityService = mock(CityService.class);
-        candidateController = new CandidateController(candidateService, cityService);
+        templateEngine = mock(ITemplateEngine.class);
+        when(templateEngine.process(eq("candidates/table"), any(IContext.class))).thenReturn("<table></table>");
+        when(candidateService.readWithTableVersionCandidate(any())).thenAnswer(readAt(1));
+        var fragmentCacheService = new SimpleFragmentCacheService(new SimpleMeterRegistry(), 100_000);
+        candidateController = new CandidateController(candidateService, cityService, fragmentCacheService, templateEngine);
         testFile = new MockMultipartFile("testFile.img", new byte[] {1, 2, 3});
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
     }
 
     @Test
@@ -45,11 +67,50 @@ public class CandidateControllerTest {
         when(candidateService.findAllCandidate()).thenReturn(expectedCandidates);
 
         var model = new ConcurrentModel();
-        var view = candidateController.getAll(model);
-        var actualCandidates = model.getAttribute("candidates");
+        var view = candidateController.getAll(model, webRequest);
+        var contextCaptor = ArgumentCaptor.forClass(IContext.class);
+        verify(templateEngine).process(eq("candidates/table"), contextCaptor.capture());
 
         assertThat(view).isEqualTo("candidates/list");
-        assertThat(actualCandidates).isEqualTo(expectedCandidates);
+        assertThat(model.getAttribute("table")).isEqualTo("<table></table>");
+        assertThat(contextCaptor.getValue().getVariable("candidates")).isEqualTo(expectedCandidates);
+    }
+
+    @Test
+    @DisplayName("Если список кандидатов не менялся, возвращается 304 без чтения кандидатов")
+    public void whenCandidateListNotChangedThenNotModifiedWithoutReadingCandidates() {
+        doAnswer(readAt(2)).when(candidateService).readWithTableVersionCandidate(any());
+        candidateController.getAll(new ConcurrentModel(), webRequest);
+        var etag = webRequest.getResponse().getHeader(HttpHeaders.ETAG);
+
+        var request = new MockHttpServletRequest("GET", "/candidates");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        var response = new MockHttpServletResponse();
+        var view = candidateController.getAll(new ConcurrentModel(), new ServletWebRequest(request, response));
+
+        assertThat(view).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("private, no-cache");
+        verify(candidateService, times(1)).findAllCandidate();
+    }
+
+    @Test
+    @DisplayName("Если кандидат не менялся, возвращается 304 без чтения кандидата")
+    public void whenCandidateNotChangedThenNotModifiedWithoutReadingCandidate() {
+        var candidate = new Candidate(1, "test1", "desc1", now(), 1, 1);
+        when(candidateService.findVersionByIdCandidate(1)).thenReturn(Optional.of(3));
+        when(candidateService.findByIdCandidate(1)).thenReturn(Optional.of(candidate));
+        candidateController.getEditPage(new ConcurrentModel(), webRequest, 1);
+        var etag = webRequest.getResponse().getHeader(HttpHeaders.ETAG);
+
+        var request = new MockHttpServletRequest("GET", "/candidates/1/edit");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        var response = new MockHttpServletResponse();
+        var view = candidateController.getEditPage(new ConcurrentModel(), new ServletWebRequest(request, response), 1);
+
+        assertThat(view).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verify(candidateService, times(1)).findByIdCandidate(1);
     }
 
     @Test
@@ -92,7 +153,9 @@ public class CandidateControllerTest {
         assertThat(view).isEqualTo("redirect:/candidates");
         assertThat(actualCandidate.getName()).isEqualTo(candidate.getName());
         assertThat(actualCandidate.getDescription()).isEqualTo(candidate.getDescription());
-        assertThat(fileDto).usingRecursiveComparison().isEqualTo(actualFileDto);
+        assertThat(actualFileDto.getName()).isEqualTo(fileDto.getName());
+        assertThat(actualFileDto.getSize()).isEqualTo(fileDto.getSize());
+        assertThat(actualFileDto.getContent()).isEqualTo(fileDto.getContent());
     }
 
     @Test
@@ -110,8 +173,48 @@ public class CandidateControllerTest {
     }
 
     @Test
-    @DisplayName("При запросе кандидата по ID должен вернуться кандидат и список городов")
-    public void whenRequestCandidateByIdThenGetCandidateAndCities() {
+    @DisplayName("При отборе кандидатов должны вернуться кандидаты, количество по городам и города")
+    public void whenFilterThenGetCandidatesCityCountsAndCities() {
+        var candidate = new Candidate(1, "test1", "desc1", now(), 1, 1);
+        var filter = new CandidateFilter();
+        filter.setCityId(1);
+        var result = new FacetedResult<>(List.of(candidate), Map.of(1, 1L), null);
+        var cities = List.of(new City(1, "Москва"));
+        when(candidateService.filterCandidate(filter, null, 20)).thenReturn(result);
+        when(cityService.findAll()).thenReturn(cities);
+
+        var model = new ConcurrentModel();
+        var view = candidateController.filter(model, filter, null);
+
+        assertThat(view).isEqualTo("candidates/filter");
+        assertThat(model.getAttribute("candidates")).isEqualTo(List.of(candidate));
+        assertThat(model.getAttribute("result")).isEqualTo(result);
+        assertThat(model.getAttribute("cities")).isEqualTo(cities);
+    }
+
+    @Test
+    @DisplayName("При запросе кандидата по ID страница строится из одной проекции без списка городов")
+    public void whenRequestCandidateByIdThenGetDetailsWithoutCities() {
+        var details = new CandidateDetailsDto();
+        details.setId(1);
+        details.setName("test1");
+        details.setCityName("Москва");
+        details.setVersion(1);
+        when(candidateService.findDetailsByIdCandidate(1)).thenReturn(Optional.of(details));
+
+        var model = new ConcurrentModel();
+        var view = candidateController.getById(model, webRequest, 1);
+
+        assertThat(view).isEqualTo("candidates/details");
+        assertThat(model.getAttribute("candidate")).isEqualTo(details);
+        assertThat(webRequest.getResponse().getHeader(HttpHeaders.ETAG)).isNotNull();
+        verify(candidateService, never()).findByIdCandidate(anyInt());
+        verifyNoInteractions(cityService);
+    }
+
+    @Test
+    @DisplayName("При запросе формы редактирования кандидата должен вернуться кандидат и список городов")
+    public void whenRequestCandidateEditPageThenGetCandidateAndCities() {
         var candidate = new Candidate(1, "test1", "desc1", now(), 1, 1);
         var city1 = new City(1, "Москва");
         var city2 = new City(2, "Санкт-Петербург");
@@ -121,7 +224,7 @@ public class CandidateControllerTest {
         when(cityService.findAll()).thenReturn(expectedCities);
 
         var model = new ConcurrentModel();
-        var view = candidateController.getById(model, 1);
+        var view = candidateController.getEditPage(model, webRequest, 1);
         var actualCandidate = model.getAttribute("candidate");
         var actualCities = model.getAttribute("cities");
 
@@ -133,10 +236,10 @@ public class CandidateControllerTest {
     @Test
     @DisplayName("При запросе несуществующего кандидата должна отобразиться страница ошибки")
     public void whenRequestNonExistentCandidateThenGetErrorPage() {
-        when(candidateService.findByIdCandidate(999)).thenReturn(Optional.empty());
+        when(candidateService.findDetailsByIdCandidate(999)).thenReturn(Optional.empty());
 
         var model = new ConcurrentModel();
-        var view = candidateController.getById(model, 999);
+        var view = candidateController.getById(model, webRequest, 999);
         var actualMessage = model.getAttribute("message");
 
         assertThat(view).isEqualTo("errors/404");
@@ -169,7 +272,9 @@ public class CandidateControllerTest {
         assertThat(view).isEqualTo("redirect:/candidates");
         assertThat(actualCandidate.getName()).isEqualTo(candidate.getName());
         assertThat(actualCandidate.getDescription()).isEqualTo(candidate.getDescription());
-        assertThat(fileDto).usingRecursiveComparison().isEqualTo(actualFileDto);
+        assertThat(actualFileDto.getName()).isEqualTo(fileDto.getName());
+        assertThat(actualFileDto.getSize()).isEqualTo(fileDto.getSize());
+        assertThat(actualFileDto.getContent()).isEqualTo(fileDto.getContent());
     }
 
     @Test
@@ -216,4 +321,11 @@ public class CandidateControllerTest {
         verify(candidateService).deleteByIdCandidate(1);
         assertThat(view).isEqualTo("redirect:/candidates");
     }
-}
\ No newline at end of file
+
+    /**
+     * Выполняет переданное контроллером чтение списка при заданной версии таблицы.
+     */
+    private static Answer<Object> readAt(long version) {
+        return invocation -> invocation.<Function<TableVersion, Object>>getArgument(0).apply(new TableVersion(version));
+    }
+}
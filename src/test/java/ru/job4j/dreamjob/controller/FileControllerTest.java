@@ -3,47 +3,109 @@ package ru.job4j.dreamjob.controller;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import ru.job4j.dreamjob.dto.FileDto;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.job4j.dreamjob.dto.FileResourceDto;
 import ru.job4j.dreamjob.service.FileService;
+import ru.job4j.dreamjob.service.ImageVariantService;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @DisplayName("Тесты для FileController")
 public class FileControllerTest {
 
     private FileService fileService;
+    private ImageVariantService imageVariantService;
     private FileController fileController;
+    private MockMvc mockMvc;
+
+    @TempDir
+    private Path directory;
 
     @BeforeEach
     public void initServices() {
         fileService = mock(FileService.class);
-        fileController = new FileController(fileService);
+        imageVariantService = mock(ImageVariantService.class);
+        fileController = new FileController(fileService, imageVariantService);
+        mockMvc = MockMvcBuilders.standaloneSetup(fileController).build();
+    }
+
+    private FileResourceDto createFile(String name, byte[] content) throws Exception {
+        var path = Files.write(directory.resolve(name), content);
+        return new FileResourceDto(name, new FileSystemResource(path));
     }
 
     @Test
-    @DisplayName("При запросе существующего файла по ID должен вернуться ResponseEntity с содержимым файла")
-    public void whenRequestExistingFileByIdThenReturnResponseWithFileContent() {
-        var fileContent = new byte[] {1, 2, 3, 4, 5};
-        var fileDto = new FileDto("test.txt", fileContent);
-        when(fileService.getFileById(1)).thenReturn(Optional.of(fileDto));
+    @DisplayName("При запросе существующего файла по ID должен вернуться ResponseEntity с ресурсом файла")
+    public void whenRequestExistingFileByIdThenReturnResponseWithFileResource() throws Exception {
+        var file = createFile("test.png", new byte[] {1, 2, 3, 4, 5});
+        when(fileService.getFileResourceById(1)).thenReturn(Optional.of(file));
 
-        var response = fileController.getById(1);
+        var response = fileController.getById(1, null);
 
-        assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        assertThat(response.getBody()).isEqualTo(fileContent);
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(file.getResource());
+        assertThat(response.getHeaders().getContentType().toString()).isEqualTo("image/png");
+        assertThat(response.getHeaders().getETag()).isNotNull();
     }
 
     @Test
     @DisplayName("При запросе несуществующего файла по ID должен вернуться ResponseEntity с 404")
     public void whenRequestNonExistentFileByIdThenReturnNotFoundResponse() {
-        when(fileService.getFileById(999)).thenReturn(Optional.empty());
+        when(fileService.getFileResourceById(999)).thenReturn(Optional.empty());
 
-        var response = fileController.getById(999);
+        var response = fileController.getById(999, null);
 
-        assertThat(response.getStatusCodeValue()).isEqualTo(404);
+        assertThat(response.getStatusCode().value()).isEqualTo(404);
         assertThat(response.getBody()).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("При Range-запросе должна вернуться только запрошенная часть файла")
+    public void whenRequestRangeThenReturnPartialContent() throws Exception {
+        var file = createFile("test.txt", new byte[] {1, 2, 3, 4, 5});
+        when(fileService.getFileResourceById(1)).thenReturn(Optional.of(file));
+
+        mockMvc.perform(get("/files/1").header(HttpHeaders.RANGE, "bytes=1-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-2/5"))
+                .andExpect(content().bytes(new byte[] {2, 3}));
+    }
+
+    @Test
+    @DisplayName("При повторном запросе с тем же ETag должен вернуться 304 без тела")
+    public void whenRequestWithMatchingEtagThenReturnNotModified() throws Exception {
+        var file = createFile("test.txt", new byte[] {1, 2, 3, 4, 5});
+        when(fileService.getFileResourceById(1)).thenReturn(Optional.of(file));
+        var etag = mockMvc.perform(get("/files/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/files/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("При запросе с параметром w должна вернуться уменьшенная копия изображения")
+    public void whenRequestWithWidthThenReturnImageVariant() throws Exception {
+        var variant = createFile("variant.png", new byte[] {1, 2});
+        when(imageVariantService.getVariant(1, 200)).thenReturn(Optional.of(variant));
+
+        mockMvc.perform(get("/files/1").param("w", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[] {1, 2}));
+        verify(fileService, never()).getFileResourceById(anyInt());
+    }
+}
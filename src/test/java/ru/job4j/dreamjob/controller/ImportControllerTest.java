@@ -0,0 +1,160 @@
+package ru.job4j.dreamjob.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.job4j.dreamjob.model.Candidate;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.CandidateRepository;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+import ru.job4j.dreamjob.service.SimpleImportService;
+
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DisplayName("Тесты для ImportController")
+public class ImportControllerTest {
+
+    private VacancyRepository vacancyRepository;
+    private CandidateRepository candidateRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void initServices() {
+        vacancyRepository = mock(VacancyRepository.class);
+        candidateRepository = mock(CandidateRepository.class);
+        var importService = new SimpleImportService(vacancyRepository, candidateRepository, new ObjectMapper(), 2);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ImportController(importService)).build();
+    }
+
+    @Test
+    @DisplayName("Вакансии из NDJSON сохраняются пачками заданного размера")
+    @SuppressWarnings("unchecked")
+    public void whenImportNdjsonThenVacanciesSavedInChunks() throws Exception {
+        var body = """
+                {"title": "Java", "description": "desc", "cityId": 1}
+                {"title": "Kotlin", "visible": false, "cityId": 2, "creationDate": "2024-01-01T10:00:00"}
+
+                {"title": "Go", "cityId": 3}
+                """;
+        var captor = ArgumentCaptor.forClass(List.class);
+
+        mockMvc.perform(post("/import/vacancies").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.failed").value(0));
+
+        verify(vacancyRepository, times(2)).saveAll(captor.capture());
+        var firstChunk = (List<Vacancy>) captor.getAllValues().get(0);
+        var secondChunk = (List<Vacancy>) captor.getAllValues().get(1);
+        assertThat(firstChunk.size()).isEqualTo(2);
+        assertThat(firstChunk.get(1).getTitle()).isEqualTo("Kotlin");
+        assertThat(firstChunk.get(1).getVisible()).isFalse();
+        assertThat(firstChunk.get(1).getCityId()).isEqualTo(2);
+        assertThat(secondChunk.size()).isEqualTo(1);
+        assertThat(secondChunk.get(0).getTitle()).isEqualTo("Go");
+    }
+
+    @Test
+    @DisplayName("Строки CSV с ошибками попадают в отчет с номером строки, остальные сохраняются")
+    @SuppressWarnings("unchecked")
+    public void whenImportCsvWithInvalidRowThenErrorReportedWithLine() throws Exception {
+        var body = String.join("\n",
+                "name,description,cityId",
+                "\"Иванов, Иван\",\"Говорит \"\"привет\"\"\",1",
+                ",no name,1",
+                "Петров,desc,abc");
+        var captor = ArgumentCaptor.forClass(List.class);
+
+        mockMvc.perform(post("/import/candidates").contentType("text/csv").content(body.getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[1].line").value(4));
+
+        verify(candidateRepository).saveAllCandidate(captor.capture());
+        var candidate = (Candidate) captor.getValue().get(0);
+        assertThat(candidate.getName()).isEqualTo("Иванов, Иван");
+        assertThat(candidate.getDescription()).isEqualTo("Говорит \"привет\"");
+    }
+
+    @Test
+    @DisplayName("CSV читается в кодировке из Content-Type")
+    public void whenCharsetGivenThenBodyDecodedWithIt() throws Exception {
+        var body = "name,cityId\nИванов,1";
+        var captor = ArgumentCaptor.forClass(List.class);
+
+        mockMvc.perform(post("/import/candidates").contentType("text/csv;charset=windows-1251")
+                        .content(body.getBytes(Charset.forName("windows-1251"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+
+        verify(candidateRepository).saveAllCandidate(captor.capture());
+        assertThat(((Candidate) captor.getValue().get(0)).getName()).isEqualTo("Иванов");
+    }
+
+    @Test
+    @DisplayName("Текст ошибки БД, не связанной с ограничениями, не попадает в отчет")
+    public void whenRowFailsWithUnknownErrorThenDriverMessageHidden() throws Exception {
+        doThrow(new RuntimeException("Table VACANCIES not found; SQL statement: INSERT INTO vacancies ..."))
+                .when(vacancyRepository).saveAll(anyList());
+
+        mockMvc.perform(post("/import/vacancies").contentType(MediaType.APPLICATION_NDJSON).content("{\"title\": \"Java\", \"cityId\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Не удалось сохранить запись"));
+    }
+
+    @Test
+    @DisplayName("Если пачка не сохранилась, строки сохраняются по одной и ошибочная попадает в отчет")
+    public void whenChunkFailsThenRowsRetriedOneByOne() throws Exception {
+        var body = """
+                {"title": "Java", "cityId": 1}
+                {"title": "Kotlin", "cityId": 999}
+                """;
+        doThrow(new RuntimeException("batch failed", new SQLException("FK_CITY: INSERT INTO vacancies ...", "23506")))
+                .when(vacancyRepository).saveAll(argThat(vacancies -> vacancies.stream().anyMatch(v -> v.getCityId() == 999)));
+
+        mockMvc.perform(post("/import/vacancies").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Поле cityId: города с таким идентификатором нет"));
+
+        verify(vacancyRepository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Некорректный JSON отклоняется построчно")
+    public void whenMalformedJsonThenLineRejected() throws Exception {
+        mockMvc.perform(post("/import/vacancies").contentType(MediaType.APPLICATION_NDJSON).content("{\"title\": \n[1]\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[1].message").value("Ожидался JSON-объект"));
+
+        verify(vacancyRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Неподдерживаемый формат отклоняется с кодом 415")
+    public void whenUnsupportedContentTypeThenUnsupportedMediaType() throws Exception {
+        mockMvc.perform(post("/import/vacancies").contentType(MediaType.APPLICATION_XML).content("<vacancies/>"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
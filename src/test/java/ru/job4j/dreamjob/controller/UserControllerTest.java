@@ -3,15 +3,23 @@ package ru.job4j.dreamjob.controller;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.ui.ConcurrentModel;
 import ru.job4j.dreamjob.model.User;
+import ru.job4j.dreamjob.repository.UserRepository;
+import ru.job4j.dreamjob.service.Pbkdf2PasswordHasher;
+import ru.job4j.dreamjob.service.SimpleUserService;
 import ru.job4j.dreamjob.service.UserService;
 
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @DisplayName("Тесты для UserController")
@@ -71,7 +79,7 @@ public class UserControllerTest {
     public void whenLoginUserSuccessfullyThenRedirectToVacancies() {
         var user = new User(1, "test@example.com", "Test User", "password");
         var request = new MockHttpServletRequest();
-        when(userService.findByEmailAndPassword("test@example.com", "password")).thenReturn(Optional.of(user));
+        when(userService.login("test@example.com", "password")).thenReturn(completedFuture(Optional.of(user)));
 
         var model = new ConcurrentModel();
         var view = userController.loginUser(user, model, request);
@@ -86,7 +94,7 @@ public class UserControllerTest {
     public void whenLoginUserWithInvalidCredentialsThenGetLoginPageWithError() {
         var user = new User(1, "test@example.com", "Test User", "wrongpassword");
         var request = new MockHttpServletRequest();
-        when(userService.findByEmailAndPassword("test@example.com", "wrongpassword")).thenReturn(Optional.empty());
+        when(userService.login("test@example.com", "wrongpassword")).thenReturn(completedFuture(Optional.empty()));
 
         var model = new ConcurrentModel();
         var view = userController.loginUser(user, model, request);
@@ -94,15 +102,94 @@ public class UserControllerTest {
 
         assertThat(view).isEqualTo("users/login");
         assertThat(errorMessage).isEqualTo("Почта или пароль введены неверно");
+        assertThat(request.getSession(false)).isNull();
+    }
+
+    @Test
+    @DisplayName("Если пул проверки паролей перегружен, должна отобразиться страница входа с ошибкой")
+    public void whenLoginRejectedThenGetLoginPageWithError() {
+        var user = new User(1, "test@example.com", "Test User", "password");
+        when(userService.login("test@example.com", "password"))
+                .thenReturn(failedFuture(new RejectedExecutionException("queue is full")));
+
+        var model = new ConcurrentModel();
+        var view = userController.loginUser(user, model, new MockHttpServletRequest());
+
+        assertThat(view).isEqualTo("users/login");
+        assertThat(model.getAttribute("error")).isEqualTo("Сервис входа перегружен, попробуйте через несколько секунд");
+    }
+
+    @Test
+    @DisplayName("Пароль сохраняется хэшем, а при входе хэш со старой стоимостью пересчитывается")
+    public void whenLoginWithOutdatedHashThenPasswordRehashed() {
+        var userRepository = mock(UserRepository.class);
+        when(userRepository.save(any())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        when(userRepository.updatePassword(anyInt(), anyString())).thenReturn(true);
+        var oldService = new SimpleUserService(userRepository, new Pbkdf2PasswordHasher(1_000), Runnable::run);
+        var registered = new User(1, "test@example.com", "Test User", "password");
+        oldService.save(registered);
+        var oldHash = registered.getPassword();
+        when(userRepository.findByEmail("test@example.com"))
+                .thenReturn(Optional.of(new User(1, "test@example.com", "Test User", oldHash)));
+        var controller = new UserController(
+                new SimpleUserService(userRepository, new Pbkdf2PasswordHasher(2_000), Runnable::run));
+
+        var request = new MockHttpServletRequest();
+        var wrongView = controller.loginUser(new User(0, "test@example.com", null, "wrong"), new ConcurrentModel(), request);
+        var view = controller.loginUser(new User(0, "test@example.com", null, "password"), new ConcurrentModel(), request);
+
+        var hashCaptor = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updatePassword(eq(1), hashCaptor.capture());
+        assertThat(oldHash).startsWith("pbkdf2-sha256$1000$");
+        assertThat(hashCaptor.getValue()).startsWith("pbkdf2-sha256$2000$");
+        assertThat(wrongView).isEqualTo("users/login");
+        assertThat(view).isEqualTo("redirect:/vacancies");
+        assertThat(((User) request.getSession().getAttribute("user")).getPassword()).isEqualTo(hashCaptor.getValue());
+    }
+
+    @Test
+    @DisplayName("Поврежденный хэш в базе не совпадает с паролем и не приводит к ошибке входа")
+    public void whenStoredHashMalformedThenLoginPageWithError() {
+        var userRepository = mock(UserRepository.class);
+        var controller = new UserController(
+                new SimpleUserService(userRepository, new Pbkdf2PasswordHasher(1_000), Runnable::run));
+        var hasher = new Pbkdf2PasswordHasher(1_000);
+        var malformed = new String[] {"pbkdf2-sha256$abc$c2FsdA==$aGFzaA==", "pbkdf2-sha256$0$c2FsdA==$aGFzaA==",
+                "pbkdf2-sha256$1000$не base64$aGFzaA==", "pbkdf2-sha256$1000$$aGFzaA==", "pbkdf2-sha256$1000"};
+
+        for (var hash : malformed) {
+            when(userRepository.findByEmail("test@example.com"))
+                    .thenReturn(Optional.of(new User(1, "test@example.com", "Test User", hash)));
+            var model = new ConcurrentModel();
+            var request = new MockHttpServletRequest();
+            var view = controller.loginUser(new User(0, "test@example.com", null, hash), model, request);
+
+            assertThat(view).isEqualTo("users/login");
+            assertThat(request.getSession(false)).isNull();
+            assertThat(hasher.needsRehash(hash)).isTrue();
+        }
+        verify(userRepository, never()).updatePassword(anyInt(), anyString());
     }
 
     @Test
     @DisplayName("При выходе пользователя должна произойти инвалидация сессии и перенаправление на страницу входа")
     public void whenLogoutUserThenInvalidateSessionAndRedirectToLoginPage() {
         var session = new MockHttpSession();
-        var view = userController.logout(session);
+        var request = new MockHttpServletRequest();
+        request.setSession(session);
+        var view = userController.logout(request);
 
         assertThat(view).isEqualTo("redirect:/users/login");
         assertThat(session.isInvalid()).isTrue();
     }
+
+    @Test
+    @DisplayName("Выход без сессии не создает сессию")
+    public void whenLogoutWithoutSessionThenSessionNotCreated() {
+        var request = new MockHttpServletRequest();
+        var view = userController.logout(request);
+
+        assertThat(view).isEqualTo("redirect:/users/login");
+        assertThat(request.getSession(false)).isNull();
+    }
 }
\ No newline at end of file
@@ -2,19 +2,36 @@ package ru.job4j.dreamjob.controller;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.ui.ConcurrentModel;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+import ru.job4j.dreamjob.dto.FacetedResult;
 import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.dto.Page;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyDetailsDto;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.City;
 import ru.job4j.dreamjob.model.Vacancy;
 import ru.job4j.dreamjob.service.CityService;
+import ru.job4j.dreamjob.service.SimpleFragmentCacheService;
 import ru.job4j.dreamjob.service.VacancyService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static java.time.LocalDateTime.now;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -25,15 +42,22 @@ public class VacancyControllerTest {
 
     private VacancyService vacancyService;
     private CityService cityService;
+    private ITemplateEngine templateEngine;
     private VacancyController vacancyController;
     private MultipartFile testFile;
+    private ServletWebRequest webRequest;
 
     @BeforeEach
     public void initServices() {
         vacancyService = mock(VacancyService.class);
         cityService = mock(CityService.class);
-        vacancyController = new VacancyController(vacancyService, cityService);
+        templateEngine = mock(ITemplateEngine.class);
+        when(templateEngine.process(eq("vacancies/table"), any(IContext.class))).thenReturn("<table></table>");
+        when(vacancyService.readWithTableVersion(any())).thenAnswer(readAt(1));
+        var fragmentCacheService = new SimpleFragmentCacheService(new SimpleMeterRegistry(), 100_000);
+        vacancyController = new VacancyController(vacancyService, cityService, fragmentCacheService, templateEngine);
         testFile = new MockMultipartFile("testFile.img", new byte[] {1, 2, 3});
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
     }
 
     @Test
@@ -42,14 +66,160 @@ public class VacancyControllerTest {
         var vacancy1 = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
         var vacancy2 = new Vacancy(2, "test2", "desc2", now(), false, 3, 4);
         var expectedVacancies = List.of(vacancy1, vacancy2);
-        when(vacancyService.findAll()).thenReturn(expectedVacancies);
+        var expectedPage = new Page<>(expectedVacancies, null, null);
+        when(vacancyService.findPage(null, null, 20)).thenReturn(expectedPage);
 
         var model = new ConcurrentModel();
-        var view = vacancyController.getAll(model);
-        var actualVacancies = model.getAttribute("vacancies");
+        var view = vacancyController.getAll(model, webRequest, null, null);
+        var contextCaptor = ArgumentCaptor.forClass(IContext.class);
+        verify(templateEngine).process(eq("vacancies/table"), contextCaptor.capture());
 
         assertThat(view).isEqualTo("vacancies/list");
-        assertThat(actualVacancies).isEqualTo(expectedVacancies);
+        assertThat(model.getAttribute("table")).isEqualTo("<table></table>");
+        assertThat(contextCaptor.getValue().getVariable("vacancies")).isEqualTo(expectedVacancies);
+        assertThat(contextCaptor.getValue().getVariable("page")).isEqualTo(expectedPage);
+    }
+
+    @Test
+    @DisplayName("Повторный запрос неизменившегося списка берет таблицу из кэша без чтения вакансий и отрисовки")
+    public void whenVacancyListRequestedAgainThenTableTakenFromCache() {
+        doAnswer(readAt(1)).doAnswer(readAt(1)).doAnswer(readAt(2)).when(vacancyService).readWithTableVersion(any());
+        when(vacancyService.findPage(null, null, 20)).thenReturn(new Page<>(List.of(), null, null));
+
+        vacancyController.getAll(new ConcurrentModel(), webRequest, null, null);
+        var model = new ConcurrentModel();
+        vacancyController.getAll(model, webRequest, null, null);
+        verify(vacancyService, times(1)).findPage(null, null, 20);
+        verify(templateEngine, times(1)).process(eq("vacancies/table"), any(IContext.class));
+        assertThat(model.getAttribute("table")).isEqualTo("<table></table>");
+
+        vacancyController.getAll(new ConcurrentModel(), webRequest, null, null);
+        verify(vacancyService, times(2)).findPage(null, null, 20);
+    }
+
+    @Test
+    @DisplayName("Если список вакансий не менялся, возвращается 304 без чтения вакансий")
+    public void whenVacancyListNotChangedThenNotModifiedWithoutReadingVacancies() {
+        doAnswer(readAt(3)).when(vacancyService).readWithTableVersion(any());
+        when(vacancyService.findPage(null, null, 20)).thenReturn(new Page<>(List.of(), null, null));
+        vacancyController.getAll(new ConcurrentModel(), webRequest, null, null);
+        var etag = webRequest.getResponse().getHeader(HttpHeaders.ETAG);
+
+        var request = new MockHttpServletRequest("GET", "/vacancies");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        var response = new MockHttpServletResponse();
+        var view = vacancyController.getAll(new ConcurrentModel(), new ServletWebRequest(request, response), null, null);
+
+        assertThat(view).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verify(vacancyService, times(1)).findPage(null, null, 20);
+    }
+
+    @Test
+    @DisplayName("После изменения вакансии страница вакансии отрисовывается заново")
+    public void whenVacancyChangedThenPageRenderedAgain() {
+        var vacancy = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
+        when(vacancyService.findVersionById(1)).thenReturn(Optional.of(1), Optional.of(2));
+        when(vacancyService.findById(1)).thenReturn(Optional.of(vacancy));
+        vacancyController.getEditPage(new ConcurrentModel(), webRequest, 1);
+        var etag = webRequest.getResponse().getHeader(HttpHeaders.ETAG);
+
+        var request = new MockHttpServletRequest("GET", "/vacancies/1/edit");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        var response = new MockHttpServletResponse();
+        var view = vacancyController.getEditPage(new ConcurrentModel(), new ServletWebRequest(request, response), 1);
+
+        assertThat(view).isEqualTo("vacancies/one");
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    }
+
+    @Test
+    @DisplayName("При переходе на следующую страницу курсор передается в сервис")
+    public void whenRequestNextPageThenCursorPassedToService() {
+        var page = new Page<Vacancy>(List.of(), null, null);
+        when(vacancyService.findPage("cursor", null, 20)).thenReturn(page);
+
+        var model = new ConcurrentModel();
+        var view = vacancyController.getAll(model, webRequest, "cursor", null);
+
+        assertThat(view).isEqualTo("vacancies/list");
+        verify(vacancyService).findPage("cursor", null, 20);
+    }
+
+    @Test
+    @DisplayName("Поврежденные курсоры не создают отдельных фрагментов в кэше")
+    public void whenCursorsMalformedThenSameFragmentUsed() {
+        when(vacancyService.findPage(any(), any(), eq(20))).thenReturn(new Page<>(List.of(), null, null));
+
+        vacancyController.getAll(new ConcurrentModel(), webRequest, null, null);
+        vacancyController.getAll(new ConcurrentModel(), webRequest, "garbage", null);
+        vacancyController.getAll(new ConcurrentModel(), webRequest, "2024-01-01T10:00_x", "2147483647");
+
+        verify(vacancyService, times(1)).findPage(any(), any(), eq(20));
+        verify(templateEngine, times(1)).process(eq("vacancies/table"), any(IContext.class));
+    }
+
+    @Test
+    @DisplayName("Таблица вакансий отрисовывается после транзакции чтения версии и страницы")
+    public void whenTableRenderedThenOutsideReadTransaction() {
+        var reading = new AtomicBoolean();
+        doAnswer(invocation -> {
+            reading.set(true);
+            try {
+                return readAt(1).answer(invocation);
+            } finally {
+                reading.set(false);
+            }
+        }).when(vacancyService).readWithTableVersion(any());
+        when(vacancyService.findPage(null, null, 20)).thenReturn(new Page<>(List.of(), null, null));
+        var renderedWhileReading = new AtomicBoolean();
+        when(templateEngine.process(eq("vacancies/table"), any(IContext.class))).thenAnswer(invocation -> {
+            renderedWhileReading.set(reading.get());
+            return "<table></table>";
+        });
+
+        var model = new ConcurrentModel();
+        vacancyController.getAll(model, webRequest, null, null);
+
+        assertThat(model.getAttribute("table")).isEqualTo("<table></table>");
+        assertThat(renderedWhileReading.get()).isFalse();
+    }
+
+    @Test
+    @DisplayName("При поиске должны вернуться найденные вакансии и запрос")
+    public void whenSearchThenGetPageWithFoundVacanciesAndQuery() {
+        var vacancy = new Vacancy(1, "Java", "desc1", now(), true, 1, 2);
+        var expectedPage = new Page<>(List.of(vacancy), "20", null);
+        when(vacancyService.search("java", null, 20)).thenReturn(expectedPage);
+
+        var model = new ConcurrentModel();
+        var view = vacancyController.search(model, "java", null);
+
+        assertThat(view).isEqualTo("vacancies/search");
+        assertThat(model.getAttribute("vacancies")).isEqualTo(List.of(vacancy));
+        assertThat(model.getAttribute("page")).isEqualTo(expectedPage);
+        assertThat(model.getAttribute("query")).isEqualTo("java");
+    }
+
+    @Test
+    @DisplayName("При отборе вакансий должны вернуться вакансии, количество по городам и города")
+    public void whenFilterThenGetVacanciesCityCountsAndCities() {
+        var vacancy = new Vacancy(1, "Java", "desc1", now(), true, 1, 2);
+        var filter = new VacancyFilter();
+        filter.setCityId(1);
+        var result = new FacetedResult<>(List.of(vacancy), Map.of(1, 1L), null);
+        var cities = List.of(new City(1, "Москва"));
+        when(vacancyService.filter(filter, null, 20)).thenReturn(result);
+        when(cityService.findAll()).thenReturn(cities);
+
+        var model = new ConcurrentModel();
+        var view = vacancyController.filter(model, filter, null);
+
+        assertThat(view).isEqualTo("vacancies/filter");
+        assertThat(model.getAttribute("vacancies")).isEqualTo(List.of(vacancy));
+        assertThat(model.getAttribute("result")).isEqualTo(result);
+        assertThat(model.getAttribute("cities")).isEqualTo(cities);
     }
 
     @Test
@@ -84,7 +254,9 @@ public class VacancyControllerTest {
 
         assertThat(view).isEqualTo("redirect:/vacancies");
         assertThat(actualVacancy).isEqualTo(vacancy);
-        assertThat(fileDto).usingRecursiveComparison().isEqualTo(actualFileDto);
+        assertThat(actualFileDto.getName()).isEqualTo(fileDto.getName());
+        assertThat(actualFileDto.getSize()).isEqualTo(fileDto.getSize());
+        assertThat(actualFileDto.getContent()).isEqualTo(fileDto.getContent());
     }
 
     @Test
@@ -102,8 +274,49 @@ public class VacancyControllerTest {
     }
 
     @Test
-    @DisplayName("При запросе вакансии по ID должен вернуться вакансия и список городов")
-    public void whenRequestVacancyByIdThenGetVacancyAndCities() {
+    @DisplayName("При запросе вакансии по ID страница строится из одной проекции без списка городов")
+    public void whenRequestVacancyByIdThenGetDetailsWithoutCities() {
+        var details = new VacancyDetailsDto();
+        details.setId(1);
+        details.setTitle("test1");
+        details.setCityName("Москва");
+        details.setVersion(1);
+        when(vacancyService.findDetailsById(1)).thenReturn(Optional.of(details));
+
+        var model = new ConcurrentModel();
+        var view = vacancyController.getById(model, webRequest, 1);
+
+        assertThat(view).isEqualTo("vacancies/details");
+        assertThat(model.getAttribute("vacancy")).isEqualTo(details);
+        assertThat(webRequest.getResponse().getHeader(HttpHeaders.ETAG)).isNotNull();
+        verify(vacancyService, never()).findById(anyInt());
+        verifyNoInteractions(cityService);
+    }
+
+    @Test
+    @DisplayName("Если вакансия не менялась, страница просмотра отдается как 304 после одного запроса")
+    public void whenVacancyDetailsNotChangedThenNotModified() {
+        var details = new VacancyDetailsDto();
+        details.setId(1);
+        details.setVersion(3);
+        when(vacancyService.findDetailsById(1)).thenReturn(Optional.of(details));
+        vacancyController.getById(new ConcurrentModel(), webRequest, 1);
+        var etag = webRequest.getResponse().getHeader(HttpHeaders.ETAG);
+
+        var request = new MockHttpServletRequest("GET", "/vacancies/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        var response = new MockHttpServletResponse();
+        var model = new ConcurrentModel();
+        var view = vacancyController.getById(model, new ServletWebRequest(request, response), 1);
+
+        assertThat(view).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(model.getAttribute("vacancy")).isNull();
+    }
+
+    @Test
+    @DisplayName("При запросе формы редактирования вакансии должен вернуться вакансия и список городов")
+    public void whenRequestVacancyEditPageThenGetVacancyAndCities() {
         var vacancy = new Vacancy(1, "test1", "desc1", now(), true, 1, 2);
         var city1 = new City(1, "Москва");
         var city2 = new City(2, "Санкт-Петербург");
@@ -113,7 +326,7 @@ public class VacancyControllerTest {
         when(cityService.findAll()).thenReturn(expectedCities);
 
         var model = new ConcurrentModel();
-        var view = vacancyController.getById(model, 1);
+        var view = vacancyController.getEditPage(model, webRequest, 1);
         var actualVacancy = model.getAttribute("vacancy");
         var actualCities = model.getAttribute("cities");
 
@@ -125,10 +338,10 @@ public class VacancyControllerTest {
     @Test
     @DisplayName("При запросе несуществующей вакансии должна отобразиться страница ошибки")
     public void whenRequestNonExistentVacancyThenGetErrorPage() {
-        when(vacancyService.findById(999)).thenReturn(Optional.empty());
+        when(vacancyService.findDetailsById(999)).thenReturn(Optional.empty());
 
         var model = new ConcurrentModel();
-        var view = vacancyController.getById(model, 999);
+        var view = vacancyController.getById(model, webRequest, 999);
         var actualMessage = model.getAttribute("message");
 
         assertThat(view).isEqualTo("errors/404");
@@ -153,7 +366,9 @@ public class VacancyControllerTest {
 
         assertThat(view).isEqualTo("redirect:/vacancies");
         assertThat(actualVacancy).isEqualTo(vacancy);
-        assertThat(fileDto).usingRecursiveComparison().isEqualTo(actualFileDto);
+        assertThat(actualFileDto.getName()).isEqualTo(fileDto.getName());
+        assertThat(actualFileDto.getSize()).isEqualTo(fileDto.getSize());
+        assertThat(actualFileDto.getContent()).isEqualTo(fileDto.getContent());
     }
 
     @Test
@@ -193,4 +408,11 @@ public class VacancyControllerTest {
         verify(vacancyService).deleteById(1);
         assertThat(view).isEqualTo("redirect:/vacancies");
     }
-}
\ No newline at end of file
+
+    /**
+     * Выполняет переданное контроллером чтение списка при заданной версии таблицы.
+     */
+    private static Answer<Object> readAt(long version) {
+        return invocation -> invocation.<Function<TableVersion, Object>>getArgument(0).apply(new TableVersion(version));
+    }
+}
@@ -0,0 +1,129 @@
+package ru.job4j.dreamjob.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.LocalDateTime.now;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CachingVacancyRepositoryTest {
+
+    private VacancyRepository sql2oVacancyRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CachingVacancyRepository cachingVacancyRepository;
+
+    @BeforeEach
+    public void initRepository() {
+        sql2oVacancyRepository = mock(VacancyRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cachingVacancyRepository = new CachingVacancyRepository(sql2oVacancyRepository, meterRegistry, 10, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void whenFindByIdTwiceThenDatabaseQueriedOnce() {
+        var vacancy = new Vacancy(1, "title", "description", now(), true, 1, 1);
+        when(sql2oVacancyRepository.findById(1)).thenReturn(Optional.of(vacancy));
+
+        var first = cachingVacancyRepository.findById(1);
+        var second = cachingVacancyRepository.findById(1);
+
+        assertThat(first).contains(vacancy);
+        assertThat(second).contains(vacancy);
+        verify(sql2oVacancyRepository, times(1)).findById(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vacancies").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "vacancies").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenUpdateThenNextFindByIdReadsDatabase() {
+        var vacancy = new Vacancy(1, "title", "description", now(), true, 1, 1);
+        var updated = new Vacancy(1, "new title", "description", now(), true, 1, 1);
+        when(sql2oVacancyRepository.findById(1)).thenReturn(Optional.of(vacancy), Optional.of(updated));
+        when(sql2oVacancyRepository.update(updated)).thenReturn(true);
+
+        cachingVacancyRepository.findById(1);
+        cachingVacancyRepository.update(updated);
+
+        assertThat(cachingVacancyRepository.findById(1)).contains(updated);
+        verify(sql2oVacancyRepository, times(2)).findById(1);
+    }
+
+    @Test
+    public void whenDeleteThenNextFindByIdReadsDatabase() {
+        var vacancy = new Vacancy(1, "title", "description", now(), true, 1, 1);
+        when(sql2oVacancyRepository.findById(1)).thenReturn(Optional.of(vacancy), Optional.empty());
+
+        cachingVacancyRepository.findById(1);
+        cachingVacancyRepository.deleteById(1);
+
+        assertThat(cachingVacancyRepository.findById(1)).isEmpty();
+    }
+
+    @Test
+    public void whenVacancyNotFoundThenItIsNotCached() {
+        when(sql2oVacancyRepository.findById(1)).thenReturn(Optional.empty());
+
+        cachingVacancyRepository.findById(1);
+        cachingVacancyRepository.findById(1);
+
+        verify(sql2oVacancyRepository, times(2)).findById(1);
+    }
+
+    @Test
+    public void whenUpdatedWhileLoadingThenLoadedValueIsNotCached() throws Exception {
+        var vacancy = new Vacancy(1, "title", "description", now(), true, 1, 1);
+        var updated = new Vacancy(1, "new title", "description", now(), true, 1, 1);
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(sql2oVacancyRepository.findById(1)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(vacancy);
+        }).thenReturn(Optional.of(updated));
+        when(sql2oVacancyRepository.update(updated)).thenReturn(true);
+
+        var stale = CompletableFuture.supplyAsync(() -> cachingVacancyRepository.findById(1));
+        loading.await();
+        cachingVacancyRepository.update(updated);
+        release.countDown();
+
+        assertThat(stale.get(10, TimeUnit.SECONDS)).contains(vacancy);
+        assertThat(cachingVacancyRepository.findById(1)).contains(updated);
+        verify(sql2oVacancyRepository, times(2)).findById(1);
+    }
+
+    @Test
+    public void whenConcurrentMissesThenDatabaseQueriedOnce() throws Exception {
+        var vacancy = new Vacancy(1, "title", "description", now(), true, 1, 1);
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(sql2oVacancyRepository.findById(1)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(vacancy);
+        });
+
+        var first = CompletableFuture.supplyAsync(() -> cachingVacancyRepository.findById(1));
+        loading.await();
+        var second = CompletableFuture.supplyAsync(() -> cachingVacancyRepository.findById(1));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).contains(vacancy);
+        assertThat(second.get(10, TimeUnit.SECONDS)).contains(vacancy);
+        verify(sql2oVacancyRepository, times(1)).findById(1);
+    }
+}
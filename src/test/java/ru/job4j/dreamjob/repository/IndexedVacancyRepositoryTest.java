@@ -0,0 +1,127 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.job4j.dreamjob.model.Vacancy;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class IndexedVacancyRepositoryTest {
+
+    private static final LocalDateTime CREATION_DATE = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private VacancyRepository sql2oVacancyRepository;
+
+    private IndexedVacancyRepository indexedVacancyRepository;
+
+    @TempDir
+    private Path indexDirectory;
+
+    @BeforeEach
+    public void initRepository() {
+        sql2oVacancyRepository = mock(VacancyRepository.class);
+        when(sql2oVacancyRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sql2oVacancyRepository.update(any())).thenReturn(true);
+        indexedVacancyRepository = new IndexedVacancyRepository(sql2oVacancyRepository, indexDirectory.toString());
+    }
+
+    @AfterEach
+    public void closeIndex() throws Exception {
+        indexedVacancyRepository.close();
+    }
+
+    @Test
+    public void whenRebuildThenExistingVacanciesFound() {
+        when(sql2oVacancyRepository.findAll()).thenReturn(List.of(
+                vacancy(1, "Java разработчик", "Spring, SQL"),
+                vacancy(2, "Тестировщик", "Ручное тестирование")
+        ));
+
+        indexedVacancyRepository.rebuild();
+
+        var result = indexedVacancyRepository.search("java", 0, 10);
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getId()).isEqualTo(1);
+        assertThat(result.get(0).getTitle()).isEqualTo("Java разработчик");
+        assertThat(result.get(0).getCreationDate()).isEqualTo(CREATION_DATE);
+        assertThat(result.get(0).getVisible()).isTrue();
+        verify(sql2oVacancyRepository, never()).search(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void whenSearchThenTitleMatchesRankedFirstAndWordFormsMatched() {
+        indexedVacancyRepository.save(vacancy(1, "Аналитик", "Ищем помощника для разработчиков"));
+        indexedVacancyRepository.save(vacancy(2, "Разработчик Java", "Бэкенд"));
+
+        var result = indexedVacancyRepository.search("разработчика", 0, 10);
+
+        assertThat(result).extracting(Vacancy::getId).containsExactly(2, 1);
+    }
+
+    @Test
+    public void whenUpdateThenIndexReflectsNewText() {
+        indexedVacancyRepository.save(vacancy(1, "Java разработчик", "описание"));
+        when(sql2oVacancyRepository.findById(1)).thenReturn(Optional.of(vacancy(1, "Go разработчик", "описание")));
+
+        var form = vacancy(1, "Go разработчик", "описание");
+        form.setCreationDate(null);
+        indexedVacancyRepository.update(form);
+
+        assertThat(indexedVacancyRepository.search("java", 0, 10)).isEmpty();
+        var found = indexedVacancyRepository.search("go", 0, 10);
+        assertThat(found).extracting(Vacancy::getTitle).containsExactly("Go разработчик");
+        assertThat(found.get(0).getCreationDate()).isEqualTo(CREATION_DATE);
+    }
+
+    @Test
+    public void whenDeleteThenNotFound() {
+        indexedVacancyRepository.save(vacancy(1, "Java разработчик", "описание"));
+
+        indexedVacancyRepository.deleteById(1);
+
+        assertThat(indexedVacancyRepository.search("java", 0, 10)).isEmpty();
+    }
+
+    @Test
+    public void whenSaveAllThenPagedByOffset() {
+        indexedVacancyRepository.saveAll(List.of(
+                vacancy(1, "Java разработчик", "описание"),
+                vacancy(2, "Java разработчик", "описание"),
+                vacancy(3, "Java разработчик", "описание")
+        ));
+
+        var firstPage = indexedVacancyRepository.search("java", 0, 2);
+        var secondPage = indexedVacancyRepository.search("java", 2, 2);
+
+        assertThat(firstPage).hasSize(2);
+        assertThat(secondPage).hasSize(1);
+        assertThat(secondPage.get(0).getId()).isNotIn(firstPage.get(0).getId(), firstPage.get(1).getId());
+    }
+
+    @Test
+    public void whenOffsetHugeThenNothingFoundWithoutOverflow() {
+        indexedVacancyRepository.save(vacancy(1, "Java разработчик", "описание"));
+
+        assertThat(indexedVacancyRepository.search("java", Integer.MAX_VALUE, 21)).isEmpty();
+    }
+
+    @Test
+    public void whenQueryHasNoWordsThenNothingFound() {
+        indexedVacancyRepository.save(vacancy(1, "Java разработчик", "описание"));
+
+        assertThat(indexedVacancyRepository.search("  ", 0, 10)).isEmpty();
+    }
+
+    private Vacancy vacancy(int id, String title, String description) {
+        return new Vacancy(id, title, description, CREATION_DATE, true, 1, 0);
+    }
+}
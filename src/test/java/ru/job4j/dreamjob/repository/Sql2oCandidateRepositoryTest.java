@@ -5,10 +5,14 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
+import ru.job4j.dreamjob.dto.CandidateDetailsDto;
+import ru.job4j.dreamjob.dto.CandidateFilter;
 import ru.job4j.dreamjob.model.Candidate;
 import ru.job4j.dreamjob.model.File;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static java.time.LocalDateTime.now;
@@ -35,8 +39,8 @@ public class Sql2oCandidateRepositoryTest {
         var password = properties.getProperty("datasource.password");
 
         var configuration = new DatasourceConfiguration();
-        var datasource = configuration.connectionPool(url, username, password);
-        var sql2o = configuration.databaseClient(datasource);
+        var datasource = configuration.connectionPool(url, username, password, new DatasourcePoolProperties());
+        var sql2o = configuration.databaseClient(datasource, configuration.sqlParameterParsingStrategy());
 
         sql2oCandidateRepository = new Sql2oCandidateRepository(sql2o);
         sql2oFileRepository = new Sql2oFileRepository(sql2o);
@@ -67,6 +71,25 @@ public class Sql2oCandidateRepositoryTest {
         assertThat(savedCandidate).usingRecursiveComparison().isEqualTo(candidate);
     }
 
+    @Test
+    public void whenFindDetailsThenCityNameAndFileJoined() {
+        var creationDate = now().withSecond(0).withNano(0);
+        var candidate = sql2oCandidateRepository.saveCandidate(new Candidate(0, "name", "description", creationDate, 1, file.getId()));
+        var expected = new CandidateDetailsDto();
+        expected.setId(candidate.getId());
+        expected.setName("name");
+        expected.setDescription("description");
+        expected.setCreationDate(creationDate);
+        expected.setCityName("Москва");
+        expected.setFileId(file.getId());
+        expected.setFileName(file.getName());
+        expected.setFileSize(file.getSize());
+        expected.setVersion(1);
+        var details = sql2oCandidateRepository.findDetailsByIdCandidate(candidate.getId()).get();
+        assertThat(details).usingRecursiveComparison().isEqualTo(expected);
+        assertThat(sql2oCandidateRepository.findDetailsByIdCandidate(0)).isEqualTo(empty());
+    }
+
     @Test
     public void whenSaveSeveralThenGetAll() {
         var creationDate = now().withSecond(0).withNano(0);
@@ -109,7 +132,8 @@ public class Sql2oCandidateRepositoryTest {
         var isUpdated = sql2oCandidateRepository.updateCandidate(updatedCandidate);
         var savedCandidate = sql2oCandidateRepository.findByIdCandidate(updatedCandidate.getId()).get();
         assertThat(isUpdated).isTrue();
-        assertThat(savedCandidate).usingRecursiveComparison().isEqualTo(updatedCandidate);
+        assertThat(savedCandidate).usingRecursiveComparison().ignoringFields("version").isEqualTo(updatedCandidate);
+        assertThat(sql2oCandidateRepository.findVersionByIdCandidate(updatedCandidate.getId())).contains(2);
     }
 
     @Test
@@ -119,4 +143,23 @@ public class Sql2oCandidateRepositoryTest {
         var isUpdated = sql2oCandidateRepository.updateCandidate(candidate);
         assertThat(isUpdated).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenFindByFilterThenMatchingCandidatesAndCityCounts() {
+        var today = now().withSecond(0).withNano(0);
+        var recentMoscow = sql2oCandidateRepository.saveCandidate(new Candidate(0, "name1", "d", today, 1, file.getId()));
+        sql2oCandidateRepository.saveCandidate(new Candidate(0, "name2", "d", today, 2, file.getId()));
+        sql2oCandidateRepository.saveCandidate(new Candidate(0, "name3", "d", today.minusDays(10), 1, file.getId()));
+        var filter = new CandidateFilter();
+        filter.setCityId(1);
+        filter.setCreatedFrom(today.toLocalDate());
+        filter.setCreatedTo(today.toLocalDate());
+
+        var result = sql2oCandidateRepository.findByFilterCandidate(filter, null, 10);
+
+        assertThat(result.getItems().size()).isEqualTo(1);
+        assertThat(result.getItems().get(0).getId()).isEqualTo(recentMoscow.getId());
+        assertThat(result.getItems().get(0).getName()).isEqualTo("name1");
+        assertThat(result.getCityCounts()).isEqualTo(Map.of(1, 1L, 2, 1L));
+    }
+}
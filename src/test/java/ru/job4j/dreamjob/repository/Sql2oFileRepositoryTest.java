@@ -0,0 +1,83 @@
+package ru.job4j.dreamjob.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
+import ru.job4j.dreamjob.model.File;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static java.util.Optional.empty;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class Sql2oFileRepositoryTest {
+
+    private static Sql2oFileRepository sql2oFileRepository;
+
+    private final List<File> savedFiles = new ArrayList<>();
+
+    @BeforeAll
+    public static void initRepositories() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = Sql2oFileRepositoryTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        var url = properties.getProperty("datasource.url");
+        var username = properties.getProperty("datasource.username");
+        var password = properties.getProperty("datasource.password");
+
+        var configuration = new DatasourceConfiguration();
+        var datasource = configuration.connectionPool(url, username, password, new DatasourcePoolProperties());
+        var sql2o = configuration.databaseClient(datasource, configuration.sqlParameterParsingStrategy());
+
+        sql2oFileRepository = new Sql2oFileRepository(sql2o);
+    }
+
+    @AfterEach
+    public void clearFiles() {
+        for (var file : savedFiles) {
+            sql2oFileRepository.deleteById(file.getId());
+        }
+    }
+
+    private File save(File file) {
+        savedFiles.add(sql2oFileRepository.save(file));
+        return file;
+    }
+
+    @Test
+    public void whenSaveThenFindByIdAndPath() {
+        var file = save(new File("name.png", "files/ab/cd/abcd", 5, "abcd"));
+        var foundById = sql2oFileRepository.findById(file.getId()).get();
+        var foundByPath = sql2oFileRepository.findByPath("files/ab/cd/abcd").get();
+        assertThat(foundById).usingRecursiveComparison().isEqualTo(file);
+        assertThat(foundByPath).usingRecursiveComparison().isEqualTo(file);
+    }
+
+    @Test
+    public void whenRemoveLastReferenceThenFileDeleted() {
+        var file = save(new File("name.png", "files/path1", 5, "abcd"));
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isTrue();
+        assertThat(sql2oFileRepository.findById(file.getId())).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenAddReferenceThenFileKeptUntilLastReferenceRemoved() {
+        var file = save(new File("name.png", "files/path2", 5, "abcd"));
+        assertThat(sql2oFileRepository.addReference(file.getId())).isTrue();
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isFalse();
+        assertThat(sql2oFileRepository.findById(file.getId())).isNotEqualTo(empty());
+        assertThat(sql2oFileRepository.removeReference(file.getId())).isTrue();
+        assertThat(sql2oFileRepository.findById(file.getId())).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenAddReferenceToDeletedFileThenGetFalse() {
+        assertThat(sql2oFileRepository.addReference(0)).isFalse();
+        assertThat(sql2oFileRepository.removeReference(0)).isFalse();
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.sql2o.Sql2o;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
 import ru.job4j.dreamjob.model.User;
 
 import java.lang.reflect.Field;
@@ -29,8 +30,8 @@ class Sql2oUserRepositoryTest {
         var password = properties.getProperty("datasource.password");
 
         var configuration = new DatasourceConfiguration();
-        var datasource = configuration.connectionPool(url, username, password);
-        var sql2o = configuration.databaseClient(datasource);
+        var datasource = configuration.connectionPool(url, username, password, new DatasourcePoolProperties());
+        var sql2o = configuration.databaseClient(datasource, configuration.sqlParameterParsingStrategy());
 
         sql2oUserRepository = new Sql2oUserRepository(sql2o);
     }
@@ -59,20 +60,20 @@ class Sql2oUserRepositoryTest {
     }
 
     @Test
-    @DisplayName("Поиск по почте и паролю находит пользователя")
-    public void whenFindByEmailAndPasswordThenGetUser() {
-        var user = new User("test@example.com", "Тестовый Пользователь", "password123");
+    @DisplayName("Поиск по почте находит пользователя вместе с сохраненным паролем")
+    public void whenFindByEmailThenGetUser() {
+        var user = new User("test@example.com", "Тестовый Пользователь", "hash");
         var savedUser = sql2oUserRepository.save(user).get();
 
-        var foundUser = sql2oUserRepository.findByEmailAndPassword("test@example.com", "password123");
+        var foundUser = sql2oUserRepository.findByEmail("test@example.com");
         assertThat(foundUser).isPresent();
         assertThat(foundUser.get()).usingRecursiveComparison().isEqualTo(savedUser);
     }
 
     @Test
-    @DisplayName("Поиск по неверным данным возвращает пустой результат")
-    public void whenFindByWrongEmailAndPasswordThenGetEmpty() {
-        var user = sql2oUserRepository.findByEmailAndPassword("wrong@example.com", "wrongpass");
+    @DisplayName("Поиск по неверной почте возвращает пустой результат")
+    public void whenFindByWrongEmailThenGetEmpty() {
+        var user = sql2oUserRepository.findByEmail("wrong@example.com");
         assertThat(user).isEqualTo(empty());
     }
 
@@ -90,22 +91,19 @@ class Sql2oUserRepositoryTest {
     }
 
     @Test
-    @DisplayName("Поиск пользователя с правильной почтой и неправильным паролем возвращает пустой результат")
-    public void whenFindByEmailAndWrongPasswordThenGetEmpty() {
-        var user = new User("test2@example.com", "Тестовый Пользователь", "password123");
-        sql2oUserRepository.save(user);
+    @DisplayName("Обновление пароля заменяет сохраненный хэш")
+    public void whenUpdatePasswordThenGetNewHash() {
+        var user = sql2oUserRepository.save(new User("test2@example.com", "Тестовый Пользователь", "old")).get();
+
+        var isUpdated = sql2oUserRepository.updatePassword(user.getId(), "new");
 
-        var foundUser = sql2oUserRepository.findByEmailAndPassword("test2@example.com", "wrongpassword");
-        assertThat(foundUser).isEqualTo(empty());
+        assertThat(isUpdated).isTrue();
+        assertThat(sql2oUserRepository.findByEmail("test2@example.com").get().getPassword()).isEqualTo("new");
     }
 
     @Test
-    @DisplayName("Поиск пользователя с неправильной почтой и правильным паролем возвращает пустой результат")
-    public void whenFindByWrongEmailAndCorrectPasswordThenGetEmpty() {
-        var user = new User("test3@example.com", "Тестовый Пользователь", "password123");
-        sql2oUserRepository.save(user);
-
-        var foundUser = sql2oUserRepository.findByEmailAndPassword("wrong@example.com", "password123");
-        assertThat(foundUser).isEqualTo(empty());
+    @DisplayName("Обновление пароля несуществующего пользователя возвращает false")
+    public void whenUpdatePasswordOfUnknownUserThenGetFalse() {
+        assertThat(sql2oUserRepository.updatePassword(0, "new")).isFalse();
     }
-}
\ No newline at end of file
+}
@@ -4,17 +4,27 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sql2o.Sql2oException;
 import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
+import ru.job4j.dreamjob.configuration.InstrumentedDataSource;
+import ru.job4j.dreamjob.dto.PageCursor;
+import ru.job4j.dreamjob.dto.TableVersion;
+import ru.job4j.dreamjob.dto.VacancyFilter;
 import ru.job4j.dreamjob.model.File;
 import ru.job4j.dreamjob.model.Vacancy;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static java.time.LocalDateTime.now;
 import static java.util.Collections.emptyList;
 import static java.util.Optional.empty;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 public class Sql2oVacancyRepositoryTest {
 
@@ -24,19 +34,27 @@ public class Sql2oVacancyRepositoryTest {
 
     private static File file;
 
+    private static InstrumentedDataSource connectionPool;
+
+    private static String url;
+
+    private static String username;
+
+    private static String password;
+
     @BeforeAll
     public static void initRepositories() throws Exception {
         var properties = new Properties();
         try (var inputStream = Sql2oVacancyRepositoryTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
             properties.load(inputStream);
         }
-        var url = properties.getProperty("datasource.url");
-        var username = properties.getProperty("datasource.username");
-        var password = properties.getProperty("datasource.password");
+        url = properties.getProperty("datasource.url");
+        username = properties.getProperty("datasource.username");
+        password = properties.getProperty("datasource.password");
 
         var configuration = new DatasourceConfiguration();
-        var datasource = configuration.connectionPool(url, username, password);
-        var sql2o = configuration.databaseClient(datasource);
+        connectionPool = configuration.connectionPool(url, username, password, new DatasourcePoolProperties());
+        var sql2o = configuration.databaseClient(connectionPool, configuration.sqlParameterParsingStrategy());
 
         sql2oVacancyRepository = new Sql2oVacancyRepository(sql2o);
         sql2oFileRepository = new Sql2oFileRepository(sql2o);
@@ -76,6 +94,157 @@ public class Sql2oVacancyRepositoryTest {
         assertThat(result).isEqualTo(List.of(vacancy1, vacancy2, vacancy3));
     }
 
+    @Test
+    public void whenSaveAllThenAllSavedWithoutFile() {
+        var creationDate = now().withSecond(0).withNano(0);
+        sql2oVacancyRepository.saveAll(List.of(
+                new Vacancy(0, "title1", "description1", creationDate, true, 1, 0),
+                new Vacancy(0, "title2", "description2", creationDate, false, 2, file.getId())
+        ));
+        var result = sql2oVacancyRepository.findAll().stream()
+                .sorted(Comparator.comparing(Vacancy::getTitle))
+                .toList();
+        assertThat(result.get(0).getId()).isNotZero();
+        assertThat(result.stream().map(Vacancy::getTitle).toList()).isEqualTo(List.of("title1", "title2"));
+        assertThat(result.stream().map(Vacancy::getFileId).toList()).isEqualTo(List.of(0, file.getId()));
+    }
+
+    @Test
+    public void whenSaveAllWithInvalidRowThenNothingSaved() {
+        var creationDate = now().withSecond(0).withNano(0);
+        var vacancies = List.of(
+                new Vacancy(0, "title1", "description1", creationDate, true, 1, 0),
+                new Vacancy(0, "title2", "description2", creationDate, true, 999, 0)
+        );
+        assertThatThrownBy(() -> sql2oVacancyRepository.saveAll(vacancies)).isInstanceOf(Sql2oException.class);
+        assertThat(sql2oVacancyRepository.findAll()).isEqualTo(emptyList());
+    }
+
+    @Test
+    public void whenSaveInTransactionThenOneConnectionForAllRepositories() {
+        var configuration = new DatasourceConfiguration();
+        var sql2o = configuration.databaseClient(configuration.transactionalDataSource(connectionPool),
+                configuration.sqlParameterParsingStrategy());
+        var fileRepository = new Sql2oFileRepository(sql2o);
+        var vacancyRepository = new Sql2oVacancyRepository(sql2o);
+        var transaction = new TransactionTemplate(configuration.transactionManager(connectionPool));
+        var creationDate = now().withSecond(0).withNano(0);
+        var borrowed = connectionPool.getBorrowedCount();
+
+        var vacancy = transaction.execute(status -> {
+            var saved = fileRepository.save(new File("committed", "committed"));
+            return vacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 1, saved.getId()));
+        });
+
+        assertThat(connectionPool.getBorrowedCount() - borrowed).isEqualTo(1);
+        assertThat(sql2oVacancyRepository.findById(vacancy.getId()).get().getFileId()).isEqualTo(vacancy.getFileId());
+        sql2oVacancyRepository.deleteById(vacancy.getId());
+        sql2oFileRepository.deleteById(vacancy.getFileId());
+    }
+
+    @Test
+    public void whenSaveFailsInTransactionThenFileIsNotSaved() {
+        var configuration = new DatasourceConfiguration();
+        var sql2o = configuration.databaseClient(configuration.transactionalDataSource(connectionPool),
+                configuration.sqlParameterParsingStrategy());
+        var fileRepository = new Sql2oFileRepository(sql2o);
+        var vacancyRepository = new Sql2oVacancyRepository(sql2o);
+        var transaction = new TransactionTemplate(configuration.transactionManager(connectionPool));
+        var creationDate = now().withSecond(0).withNano(0);
+
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            var saved = fileRepository.save(new File("orphan", "orphan"));
+            vacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 999, saved.getId()));
+        })).isInstanceOf(Sql2oException.class);
+
+        assertThat(sql2oFileRepository.findByPath("orphan")).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenSameQueryRepeatedThenParsedAndPreparedOnce() throws Exception {
+        var configuration = new DatasourceConfiguration();
+        var pool = new DatasourcePoolProperties();
+        pool.setMaxTotal(1);
+        pool.setPoolPreparedStatements(true);
+        try (var statementPool = configuration.connectionPool(url, username, password, pool)) {
+            var parsingStrategy = configuration.sqlParameterParsingStrategy();
+            var vacancyRepository = new Sql2oVacancyRepository(configuration.databaseClient(statementPool, parsingStrategy));
+            var vacancy = vacancyRepository.save(new Vacancy(0, "title", "description", now(), true, 1, file.getId()));
+            vacancyRepository.findById(vacancy.getId());
+            var prepared = statementPool.getPreparedStatementCount();
+
+            vacancyRepository.findById(vacancy.getId());
+            vacancyRepository.findById(vacancy.getId());
+
+            assertThat(statementPool.getPreparedStatementCount()).isEqualTo(prepared);
+            // Разобраны вставка вакансии, увеличение версии таблицы и выборка по id
+            assertThat(parsingStrategy.getMissCount()).isEqualTo(3);
+            assertThat(parsingStrategy.getHitCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void whenFindDetailsThenCityNameAndFileJoined() {
+        var creationDate = now().withSecond(0).withNano(0);
+        var withFile = sql2oVacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 1, file.getId()));
+        var withoutFile = new Vacancy(0, "no file", "description", creationDate, false, 2, 0);
+        sql2oVacancyRepository.saveAll(List.of(withoutFile));
+
+        var details = sql2oVacancyRepository.findDetailsById(withFile.getId()).get();
+        var detailsWithoutFile = sql2oVacancyRepository.findDetailsById(withoutFile.getId()).get();
+
+        assertThat(details.getTitle()).isEqualTo("title");
+        assertThat(details.getDescription()).isEqualTo("description");
+        assertThat(details.getCreationDate()).isEqualTo(creationDate);
+        assertThat(details.getVisible()).isTrue();
+        assertThat(details.getCityName()).isEqualTo("Москва");
+        assertThat(details.getFileId()).isEqualTo(file.getId());
+        assertThat(details.getFileName()).isEqualTo(file.getName());
+        assertThat(details.getVersion()).isEqualTo(1);
+        assertThat(detailsWithoutFile.getCityName()).isEqualTo("Санкт-Петербург");
+        assertThat(detailsWithoutFile.getFileId()).isZero();
+        assertThat(detailsWithoutFile.getFileName()).isNull();
+        assertThat(sql2oVacancyRepository.findDetailsById(0)).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenSearchThenTitleMatchesFirst() {
+        var creationDate = now().withSecond(0).withNano(0);
+        var byDescription = sql2oVacancyRepository.save(new Vacancy(0, "Analyst", "knows Java", creationDate, true, 1, file.getId()));
+        var byTitle = sql2oVacancyRepository.save(new Vacancy(0, "Java developer", "backend", creationDate, true, 1, file.getId()));
+        sql2oVacancyRepository.save(new Vacancy(0, "Tester", "manual", creationDate, true, 1, file.getId()));
+        var result = sql2oVacancyRepository.search("JAVA", 0, 10);
+        assertThat(result.stream().map(Vacancy::getId).toList()).isEqualTo(List.of(byTitle.getId(), byDescription.getId()));
+        assertThat(sql2oVacancyRepository.search("java", 1, 10).size()).isEqualTo(1);
+        assertThat(sql2oVacancyRepository.search("%", 0, 10)).isEqualTo(emptyList());
+    }
+
+    @Test
+    public void whenFindByFilterThenMatchingVacanciesAndCityCounts() {
+        var today = now().withSecond(0).withNano(0);
+        var moscowVisible = sql2oVacancyRepository.save(new Vacancy(0, "title1", "d", today, true, 1, file.getId()));
+        sql2oVacancyRepository.save(new Vacancy(0, "title2", "d", today, false, 1, file.getId()));
+        var spbVisible = sql2oVacancyRepository.save(new Vacancy(0, "title3", "d", today.minusMinutes(1), true, 2, file.getId()));
+        sql2oVacancyRepository.save(new Vacancy(0, "title4", "d", today.minusDays(10), true, 2, file.getId()));
+        var filter = new VacancyFilter();
+        filter.setCityId(1);
+        filter.setVisible(true);
+        filter.setCreatedFrom(today.toLocalDate().minusDays(1));
+
+        var result = sql2oVacancyRepository.findByFilter(filter, null, 10);
+
+        assertThat(result.getItems().stream().map(Vacancy::getId).toList()).isEqualTo(List.of(moscowVisible.getId()));
+        assertThat(result.getItems().get(0).getCityId()).isEqualTo(1);
+        assertThat(result.getCityCounts()).isEqualTo(Map.of(1, 1L, 2, 1L));
+
+        filter.setCityId(null);
+        var firstPage = sql2oVacancyRepository.findByFilter(filter, null, 1);
+        var cursor = new PageCursor(firstPage.getItems().get(0).getCreationDate(), firstPage.getItems().get(0).getId());
+        var secondPage = sql2oVacancyRepository.findByFilter(filter, cursor, 1);
+        assertThat(firstPage.getItems().get(0).getId()).isEqualTo(moscowVisible.getId());
+        assertThat(secondPage.getItems().get(0).getId()).isEqualTo(spbVisible.getId());
+    }
+
     @Test
     public void whenDontSaveThenNothingFound() {
         assertThat(sql2oVacancyRepository.findAll()).isEqualTo(emptyList());
@@ -108,7 +277,48 @@ public class Sql2oVacancyRepositoryTest {
         var isUpdated = sql2oVacancyRepository.update(updatedVacancy);
         var savedVacancy = sql2oVacancyRepository.findById(updatedVacancy.getId()).get();
         assertThat(isUpdated).isTrue();
-        assertThat(savedVacancy).usingRecursiveComparison().isEqualTo(updatedVacancy);
+        assertThat(savedVacancy).usingRecursiveComparison().ignoringFields("version").isEqualTo(updatedVacancy);
+        assertThat(savedVacancy.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenChangeVacanciesThenTableVersionChanges() {
+        var creationDate = now().withSecond(0).withNano(0);
+        var initial = sql2oVacancyRepository.findTableVersion().getVersion();
+        var vacancy = sql2oVacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 1, file.getId()));
+        var saved = sql2oVacancyRepository.findTableVersion();
+        sql2oVacancyRepository.update(vacancy);
+        var updated = sql2oVacancyRepository.findTableVersion();
+        sql2oVacancyRepository.deleteById(vacancy.getId());
+        var deleted = sql2oVacancyRepository.findTableVersion();
+        sql2oVacancyRepository.deleteById(vacancy.getId());
+        assertThat(saved).isEqualTo(new TableVersion(initial + 1));
+        assertThat(updated).isEqualTo(new TableVersion(initial + 2));
+        assertThat(deleted).isEqualTo(new TableVersion(initial + 3));
+        assertThat(sql2oVacancyRepository.findTableVersion()).isEqualTo(deleted);
+        assertThat(sql2oVacancyRepository.findVersionById(vacancy.getId())).isEqualTo(empty());
+    }
+
+    @Test
+    public void whenChangedInTransactionThenTableVersionChangesOnlyOnCommit() {
+        var configuration = new DatasourceConfiguration();
+        var vacancyRepository = new Sql2oVacancyRepository(configuration.databaseClient(
+                configuration.transactionalDataSource(connectionPool), configuration.sqlParameterParsingStrategy()));
+        var transaction = new TransactionTemplate(configuration.transactionManager(connectionPool));
+        var initial = sql2oVacancyRepository.findTableVersion().getVersion();
+
+        transaction.executeWithoutResult(status -> {
+            vacancyRepository.save(new Vacancy(0, "rollback", "description", now(), true, 1, file.getId()));
+            status.setRollbackOnly();
+        });
+        var rolledBack = sql2oVacancyRepository.findTableVersion();
+        transaction.executeWithoutResult(status -> {
+            var vacancy = vacancyRepository.save(new Vacancy(0, "commit", "description", now(), true, 1, file.getId()));
+            vacancyRepository.update(vacancy);
+        });
+
+        assertThat(rolledBack).isEqualTo(new TableVersion(initial));
+        assertThat(sql2oVacancyRepository.findTableVersion()).isEqualTo(new TableVersion(initial + 2));
     }
 
     @Test
@@ -118,4 +328,29 @@ public class Sql2oVacancyRepositoryTest {
         var isUpdated = sql2oVacancyRepository.update(vacancy);
         assertThat(isUpdated).isFalse();
     }
+
+    @Test
+    public void whenFindPagesThenGetNewestFirstWithoutOverlap() {
+        var creationDate = now().withSecond(0).withNano(0);
+        var vacancy1 = sql2oVacancyRepository.save(new Vacancy(0, "title1", "description1", creationDate, true, 1, file.getId()));
+        var vacancy2 = sql2oVacancyRepository.save(new Vacancy(0, "title2", "description2", creationDate, true, 1, file.getId()));
+        var vacancy3 = sql2oVacancyRepository.save(new Vacancy(0, "title3", "description3", creationDate.plusDays(1), true, 1, file.getId()));
+        var firstPage = sql2oVacancyRepository.findPageAfter(null, 2);
+        var last = firstPage.get(firstPage.size() - 1);
+        var secondPage = sql2oVacancyRepository.findPageAfter(new PageCursor(last.getCreationDate(), last.getId()), 2);
+        var first = secondPage.get(0);
+        var previousPage = sql2oVacancyRepository.findPageBefore(new PageCursor(first.getCreationDate(), first.getId()), 2);
+        assertThat(firstPage).isEqualTo(List.of(vacancy3, vacancy2));
+        assertThat(secondPage).isEqualTo(List.of(vacancy1));
+        assertThat(previousPage).isEqualTo(firstPage);
+    }
+
+    @Test
+    public void whenFindPageThenDescriptionIsNotLoaded() {
+        var creationDate = now().withSecond(0).withNano(0);
+        sql2oVacancyRepository.save(new Vacancy(0, "title", "description", creationDate, true, 1, file.getId()));
+        var vacancy = sql2oVacancyRepository.findPageAfter(null, 1).get(0);
+        assertThat(vacancy.getTitle()).isEqualTo("title");
+        assertThat(vacancy.getDescription()).isNull();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package ru.job4j.dreamjob.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.model.City;
+import ru.job4j.dreamjob.repository.CityRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class SimpleCityServiceTest {
+
+    private static final City MOSCOW = new City(1, "Москва");
+
+    private static final City SPB = new City(2, "Санкт-Петербург");
+
+    private CityRepository cityRepository;
+
+    private SimpleCityService cityService;
+
+    @BeforeEach
+    public void initService() {
+        cityRepository = mock(CityRepository.class);
+        cityService = new SimpleCityService(cityRepository);
+    }
+
+    @Test
+    public void whenRequestedSeveralTimesThenLoadedOnce() {
+        when(cityRepository.findAll()).thenReturn(List.of(MOSCOW, SPB));
+
+        assertThat(cityService.findAll()).containsExactly(MOSCOW, SPB);
+        assertThat(cityService.findById(2)).contains(SPB);
+        assertThat(cityService.findById(3)).isEmpty();
+
+        verify(cityRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void whenFirstRequestsAreConcurrentThenLoadedOnce() throws Exception {
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(cityRepository.findAll()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return List.of(MOSCOW);
+        });
+
+        var requests = new ArrayList<CompletableFuture<?>>();
+        for (var i = 0; i < 8; i++) {
+            requests.add(CompletableFuture.supplyAsync(() -> cityService.findById(1)));
+        }
+        loading.await();
+        release.countDown();
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        for (var request : requests) {
+            assertThat(request.get()).isEqualTo(Optional.of(MOSCOW));
+        }
+        verify(cityRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void whenRefreshedBeforeFirstRequestThenNotLoaded() {
+        cityService.refresh();
+
+        verify(cityRepository, never()).findAll();
+    }
+
+    @Test
+    public void whenRefreshedThenNewSnapshotReplacesOld() {
+        when(cityRepository.findAll()).thenReturn(List.of(MOSCOW), List.of(MOSCOW, SPB));
+        var before = cityService.findAll();
+
+        cityService.refresh();
+
+        assertThat(before).containsExactly(MOSCOW);
+        assertThat(cityService.findAll()).containsExactly(MOSCOW, SPB);
+        assertThat(cityService.findById(2)).contains(SPB);
+        verify(cityRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,211 @@
+package ru.job4j.dreamjob.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.job4j.dreamjob.configuration.DatasourceConfiguration;
+import ru.job4j.dreamjob.configuration.DatasourcePoolProperties;
+import ru.job4j.dreamjob.dto.FileDto;
+import ru.job4j.dreamjob.model.File;
+import ru.job4j.dreamjob.repository.Sql2oFileRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сохранение и удаление файлов и их уменьшенных копий на тестовой БД,
+ * в транзакциях, как их выполняют сервисы вакансий и кандидатов.
+ */
+public class SimpleFileServiceTest {
+
+    @TempDir
+    private static Path directory;
+
+    private static BasicDataSource connectionPool;
+
+    private static Sql2oFileRepository fileRepository;
+
+    private static SimpleFileService fileService;
+
+    private static SimpleFileService uniqueFileService;
+
+    private static SimpleImageVariantService imageVariantService;
+
+    private static TransactionTemplate transaction;
+
+    @BeforeAll
+    public static void initService() throws Exception {
+        var properties = new Properties();
+        try (var inputStream = SimpleFileServiceTest.class.getClassLoader().getResourceAsStream("connection.properties")) {
+            properties.load(inputStream);
+        }
+        var configuration = new DatasourceConfiguration();
+        // Транзакция, ждущая блокировку строки, не должна падать по таймауту H2 (1 секунда) раньше проверок теста
+        connectionPool = configuration.connectionPool(properties.getProperty("datasource.url") + "LOCK_TIMEOUT=10000",
+                properties.getProperty("datasource.username"), properties.getProperty("datasource.password"),
+                new DatasourcePoolProperties());
+        var sql2o = configuration.databaseClient(configuration.transactionalDataSource(connectionPool),
+                configuration.sqlParameterParsingStrategy());
+        fileRepository = new Sql2oFileRepository(sql2o);
+        imageVariantService = new SimpleImageVariantService(fileRepository, directory.resolve("variants").toString(),
+                List.of(100, 200));
+        fileService = new SimpleFileService(fileRepository, imageVariantService, directory.resolve("blobs").toString(),
+                true, new SimpleMeterRegistry());
+        uniqueFileService = new SimpleFileService(fileRepository, imageVariantService,
+                directory.resolve("unique").toString(), false, new SimpleMeterRegistry());
+        transaction = new TransactionTemplate(configuration.transactionManager(connectionPool));
+    }
+
+    @AfterAll
+    public static void closePool() throws Exception {
+        connectionPool.close();
+    }
+
+    /**
+     * Транзакция A повторно загружает то же изображение и удаляет прежнюю ссылку на него,
+     * а транзакция B между этими шагами удаляет другую ссылку на тот же блоб и ждет блокировку записи A.
+     * Ожидание должно быть только одно - в БД, иначе обе транзакции зависнут навсегда.
+     */
+    @Test
+    public void whenSameBlobSavedAndDeletedInTwoTransactionsThenBothComplete() throws Exception {
+        var content = "deadlock".getBytes();
+        var file = fileService.save(new FileDto("a.png", content));
+        fileService.save(new FileDto("b.png", content));
+        var saved = new CountDownLatch(1);
+        var deleteStarted = new CountDownLatch(1);
+
+        var first = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            fileService.save(new FileDto("c.png", content));
+            saved.countDown();
+            await(deleteStarted);
+            sleep(200);
+            fileService.deleteById(file.getId());
+        }));
+        var second = CompletableFuture.runAsync(() -> {
+            await(saved);
+            deleteStarted.countDown();
+            transaction.executeWithoutResult(status -> fileService.deleteById(file.getId()));
+        });
+
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertThat(fileRepository.findById(file.getId())).isPresent();
+        assertThat(Files.exists(Path.of(file.getPath()))).isTrue();
+        fileService.deleteById(file.getId());
+        assertThat(fileRepository.findById(file.getId())).isEmpty();
+        assertThat(Files.exists(Path.of(file.getPath()))).isFalse();
+    }
+
+    /**
+     * Удаление последней ссылки на блоб и сохранение такого же содержимого выполняются одновременно:
+     * при любом порядке у сохраненной записи должен остаться файл на диске.
+     */
+    @Test
+    public void whenLastReferenceDeletedWhileSameContentSavedThenSavedFileExists() throws Exception {
+        var content = "concurrent".getBytes();
+        for (var i = 0; i < 20; i++) {
+            var file = fileService.save(new FileDto("old.png", content));
+            var barrier = new CyclicBarrier(2);
+            var delete = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+                await(barrier);
+                fileService.deleteById(file.getId());
+            }));
+            var save = CompletableFuture.supplyAsync(() -> transaction.execute(status -> {
+                await(barrier);
+                return fileService.save(new FileDto("new.png", content));
+            }));
+
+            File saved = save.get(10, TimeUnit.SECONDS);
+            delete.get(10, TimeUnit.SECONDS);
+            assertThat(fileRepository.findById(saved.getId())).isPresent();
+            assertThat(Files.exists(Path.of(saved.getPath()))).isTrue();
+            fileService.deleteById(saved.getId());
+            assertThat(Files.exists(Path.of(saved.getPath()))).isFalse();
+        }
+    }
+
+    @Test
+    public void whenLastReferenceToBlobDeletedThenVariantsDeleted() throws Exception {
+        var image = png(300);
+        var file = fileService.save(new FileDto("image.png", image));
+        fileService.save(new FileDto("copy.png", image));
+        var small = variantPath(file.getId(), 100);
+        var large = variantPath(file.getId(), 200);
+
+        fileService.deleteById(file.getId());
+
+        assertThat(Files.exists(small)).isTrue();
+        assertThat(Files.exists(large)).isTrue();
+
+        fileService.deleteById(file.getId());
+
+        assertThat(Files.exists(small)).isFalse();
+        assertThat(Files.exists(large)).isFalse();
+    }
+
+    @Test
+    public void whenUniqueFileDeletedThenVariantsDeleted() throws Exception {
+        var file = uniqueFileService.save(new FileDto("image.png", png(300)));
+        var variant = variantPath(file.getId(), 100);
+
+        transaction.executeWithoutResult(status -> uniqueFileService.deleteById(file.getId()));
+
+        assertThat(Files.exists(Path.of(file.getPath()))).isFalse();
+        assertThat(Files.exists(variant)).isFalse();
+    }
+
+    private static Path variantPath(int fileId, int width) {
+        var variant = imageVariantService.getVariant(fileId, width).get().getResource();
+        var path = Path.of(((FileSystemResource) variant).getPath());
+        assertThat(Files.exists(path)).isTrue();
+        return path;
+    }
+
+    private static byte[] png(int width) throws IOException {
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, width / 2, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
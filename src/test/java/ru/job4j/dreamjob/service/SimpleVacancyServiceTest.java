@@ -0,0 +1,52 @@
+package ru.job4j.dreamjob.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.dreamjob.model.Vacancy;
+import ru.job4j.dreamjob.repository.VacancyRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SimpleVacancyServiceTest {
+
+    private VacancyRepository vacancyRepository;
+
+    private SimpleVacancyService vacancyService;
+
+    @BeforeEach
+    public void initService() {
+        vacancyRepository = mock(VacancyRepository.class);
+        vacancyService = new SimpleVacancyService(vacancyRepository, mock(FileService.class), mock(FragmentCacheService.class));
+    }
+
+    @Test
+    public void whenSearchCursorHugeThenEmptyPageWithoutSearch() {
+        var page = vacancyService.search("java", String.valueOf(Integer.MAX_VALUE), 20);
+
+        assertThat(page.getItems()).isEmpty();
+        verify(vacancyRepository, never()).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void whenSearchReachesResultWindowThenNoNextPage() {
+        var vacancies = new ArrayList<Vacancy>();
+        for (var i = 0; i < 21; i++) {
+            vacancies.add(new Vacancy(i, "Java", "описание", LocalDateTime.now(), true, 1, 0));
+        }
+        when(vacancyRepository.search(eq("java"), anyInt(), eq(21))).thenReturn(vacancies);
+
+        var beforeLast = vacancyService.search("java", "9960", 20);
+        var last = vacancyService.search("java", "9980", 20);
+
+        assertThat(beforeLast.getNextCursor()).isEqualTo("9980");
+        assertThat(last.getItems()).hasSize(20);
+        assertThat(last.getNextCursor()).isNull();
+    }
+}